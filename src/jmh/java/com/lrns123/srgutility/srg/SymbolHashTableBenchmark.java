@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares SymbolHashTable with HashMap on a method table of the size found in srg files.
+ * 
+ * Every benchmark handles the whole table, so scores are per table, not per entry.
+ * Run with: mvn -P benchmark test-compile exec:exec
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SymbolHashTableBenchmark
+{
+	/**
+	 * About the number of classes, and of methods, in a Minecraft joined.srg.
+	 */
+	@Param({ "3000", "30000" })
+	public int size;
+	
+	@Param({ "HashMap", "SymbolHashTable" })
+	public String table;
+	
+	private SrgMethod[] inputs;
+	private SrgMethod[] outputs;
+	
+	/**
+	 * Copies of the inputs in random order, as a lookup gets them from another mapping or file.
+	 */
+	private SrgMethod[] probes;
+	
+	private Map<SrgMethod, SrgMethod> map;
+	
+	@Setup
+	public void setup()
+	{
+		inputs = new SrgMethod[size];
+		outputs = new SrgMethod[size];
+		probes = new SrgMethod[size];
+		
+		for (int i = 0; i != size; ++i)
+		{
+			String owner = "net/minecraft/src/C" + (i / 8);
+			String descriptor = "(" + "IJZ".substring(0, i % 4) + ")V";
+			inputs[i] = new SrgMethod(owner + "/func_" + i + "_a", descriptor);
+			outputs[i] = new SrgMethod(owner + "/method" + i, descriptor);
+			probes[i] = new SrgMethod(owner + "/func_" + i + "_a", descriptor);
+		}
+		
+		List<SrgMethod> order = Arrays.asList(probes);
+		Collections.shuffle(order, new Random(1));
+		
+		map = fill();
+	}
+	
+	private Map<SrgMethod, SrgMethod> fill()
+	{
+		Map<SrgMethod, SrgMethod> result = table.equals("HashMap") ? new HashMap<SrgMethod, SrgMethod>() : new SymbolHashTable<SrgMethod>();
+		for (int i = 0; i != size; ++i)
+		{
+			result.put(inputs[i], outputs[i]);
+		}
+		return result;
+	}
+	
+	@Benchmark
+	public int get()
+	{
+		int found = 0;
+		for (SrgMethod probe : probes)
+		{
+			if (map.get(probe) != null)
+				++found;
+		}
+		return found;
+	}
+	
+	@Benchmark
+	public Map<SrgMethod, SrgMethod> put()
+	{
+		return fill();
+	}
+	
+	@Benchmark
+	public int iterate()
+	{
+		int hash = 0;
+		for (Map.Entry<SrgMethod, SrgMethod> entry : map.entrySet())
+		{
+			hash += entry.getKey().hashCode() ^ entry.getValue().hashCode();
+		}
+		return hash;
+	}
+}
@@ -26,7 +26,9 @@
  */
 package com.lrns123.srgutility.adapter;
 
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.WeakHashMap;
 
 import com.lrns123.srgutility.srg.SrgClass;
 import com.lrns123.srgutility.srg.SrgField;
@@ -34,9 +36,110 @@ import com.lrns123.srgutility.srg.SrgMapping;
 import com.lrns123.srgutility.srg.SrgMethod;
 
 import net.md_5.specialsource.JarMapping;
+import net.md_5.specialsource.provider.InheritanceProvider;
 
 public final class JarMappingAdapter
 {
+	/**
+	 * Converted mappings, by source mapping. Entries are dropped along with the source mapping. Guards the in use
+	 * flags of the entries.
+	 */
+	private static final Map<SrgMapping, CachedJarMapping> cache = new WeakHashMap<SrgMapping, CachedJarMapping>();
+	
+	/**
+	 * Returns a new JarMapping for an SrgMapping, copied from the previous conversion if the mapping has not changed
+	 * since. Every call returns its own instance, so it may be configured freely. Use
+	 * {@link #acquireJarMapping(SrgMapping, InheritanceProvider)} to avoid the copy.
+	 * @param mapping
+	 * @return
+	 */
+	public static JarMapping getJarMapping(SrgMapping mapping)
+	{
+		return copy(getCached(mapping).jarMapping);
+	}
+	
+	/**
+	 * Returns the cached JarMapping for an SrgMapping, converting it again only if the mapping has changed since, and
+	 * sets its fallback inheritance provider. The instance must be handed back with
+	 * {@link #releaseJarMapping(JarMapping)} once remapping is done, and must not be modified otherwise.
+	 * 
+	 * If the cached instance is still acquired by another caller, a copy is returned instead.
+	 * @param mapping
+	 * @param fallback The fallback inheritance provider, may be null.
+	 * @return
+	 */
+	public static JarMapping acquireJarMapping(SrgMapping mapping, InheritanceProvider fallback)
+	{
+		CachedJarMapping cached = getCached(mapping);
+		JarMapping jarMapping = null;
+		
+		synchronized (cache)
+		{
+			if (!cached.inUse)
+			{
+				cached.inUse = true;
+				jarMapping = cached.jarMapping;
+			}
+		}
+		
+		if (jarMapping == null)
+			jarMapping = copy(cached.jarMapping);
+		
+		jarMapping.setFallbackInheritanceProvider(fallback);
+		return jarMapping;
+	}
+	
+	/**
+	 * Hands back a JarMapping returned by {@link #acquireJarMapping(SrgMapping, InheritanceProvider)}, and clears its
+	 * fallback inheritance provider, so the cache does not keep the provider (and the jars it reads) alive.
+	 * @param jarMapping
+	 */
+	public static void releaseJarMapping(JarMapping jarMapping)
+	{
+		jarMapping.setFallbackInheritanceProvider(null);
+		
+		synchronized (cache)
+		{
+			for (CachedJarMapping cached : cache.values())
+			{
+				if (cached.jarMapping == jarMapping)
+					cached.inUse = false;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the cache entry for the current revision of a mapping, converting the mapping if needed.
+	 */
+	private static CachedJarMapping getCached(SrgMapping mapping)
+	{
+		int revision = mapping.getRevision();
+		
+		synchronized (cache)
+		{
+			CachedJarMapping cached = cache.get(mapping);
+			if (cached != null && cached.revision == revision)
+				return cached;
+		}
+		
+		CachedJarMapping converted = new CachedJarMapping(revision, convertSrgMapping(mapping));
+		
+		synchronized (cache)
+		{
+			cache.put(mapping, converted);
+		}
+		return converted;
+	}
+	
+	private static JarMapping copy(JarMapping source)
+	{
+		JarMapping jarMapping = new JarMapping();
+		jarMapping.classes.putAll(source.classes);
+		jarMapping.fields.putAll(source.fields);
+		jarMapping.methods.putAll(source.methods);
+		return jarMapping;
+	}
+	
 	/**
 	 * Converts an SrgMapping into SpecialSource's JarMapping.
 	 * @param mapping
@@ -56,11 +159,28 @@ public final class JarMappingAdapter
 			outMapping.fields.put(entry.getKey().getQualifiedName(), entry.getValue().getFieldName());
 		}
 		
-		for (Entry<SrgMethod, SrgMethod> entry : mapping.getMethodMapping().entrySet())
+		for (Entry<String, SrgMethod> entry : mapping.getMethodKeyIndex().entrySet())
 		{
-			outMapping.methods.put(entry.getKey().getQualifiedName(), entry.getValue().getMethodName());
+			outMapping.methods.put(entry.getKey(), entry.getValue().getMethodName());
 		}
 		
 		return outMapping;
 	}
+	
+	private static final class CachedJarMapping
+	{
+		final int revision;
+		final JarMapping jarMapping;
+		
+		/**
+		 * Whether the JarMapping is currently acquired.
+		 */
+		boolean inUse = false;
+		
+		CachedJarMapping(int revision, JarMapping jarMapping)
+		{
+			this.revision = revision;
+			this.jarMapping = jarMapping;
+		}
+	}
 }
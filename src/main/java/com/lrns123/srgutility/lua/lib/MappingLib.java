@@ -28,6 +28,8 @@ package com.lrns123.srgutility.lua.lib;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import net.md_5.specialsource.Jar;
 import net.md_5.specialsource.JarComparer;
@@ -45,12 +47,14 @@ import org.luaj.vm2.lib.VarArgFunction;
 import org.objectweb.asm.ClassReader;
 
 import com.lrns123.srgutility.lua.meta.SrgInheritanceMapMeta;
+import com.lrns123.srgutility.lua.meta.SrgMappingDeltaMeta;
 import com.lrns123.srgutility.lua.meta.SrgMappingMeta;
 import com.lrns123.srgutility.mcp.MinecraftCodersPackMapping;
 import com.lrns123.srgutility.srg.SrgClass;
 import com.lrns123.srgutility.srg.SrgField;
 import com.lrns123.srgutility.srg.SrgInheritanceMap;
 import com.lrns123.srgutility.srg.SrgMapping;
+import com.lrns123.srgutility.srg.SrgMappingDelta;
 import com.lrns123.srgutility.srg.SrgMethod;
 
 public class MappingLib extends TwoArgFunction
@@ -60,13 +64,15 @@ public class MappingLib extends TwoArgFunction
 	private static final int OP_COMPAREJARS = 2;
 	private static final int OP_MAKEINHERITANCEMAP = 3;
 	private static final int OP_LOADINHERITANCEMAP = 4;
+	private static final int OP_LOADBINARY = 5;
+	private static final int OP_LOADDELTA = 6;
 
 	@Override
 	public LuaValue call(LuaValue modname, LuaValue env)
 	{
 		LuaTable t = new LuaTable();
 		
-		bind(t, MappingLibV.class, new String[] {"loadSrg", "loadMCP", "compareJars", "makeInheritanceMap", "loadInheritanceMap"});
+		bind(t, MappingLibV.class, new String[] {"loadSrg", "loadMCP", "compareJars", "makeInheritanceMap", "loadInheritanceMap", "loadBinary", "loadDelta"});
 
 		env.set("MappingFactory", t);
 		env.get("package").get("loaded").set("MappingFactory", t);
@@ -96,6 +102,12 @@ public class MappingLib extends TwoArgFunction
 		    	case OP_LOADINHERITANCEMAP:
 		    		// MappingFactory.loadInheritanceMap(filename[, filename[, filename[, ...]]])
 		    		return loadInheritanceMap(args);
+		    	case OP_LOADBINARY:
+		    		// MappingFactory.loadBinary(filename[, filename[, filename[, ...]]])
+		    		return loadBinaryMapping(args);
+		    	case OP_LOADDELTA:
+		    		// MappingFactory.loadDelta(filename)
+		    		return loadDelta(args.arg1().checkjstring());
 		    }
 		    return LuaValue.NONE;
 		}
@@ -112,6 +124,42 @@ public class MappingLib extends TwoArgFunction
 	{
 		
 		SrgMapping mapping = new SrgMapping();
+		List<File> files = new ArrayList<File>();
+		
+		int args = filenames.narg() + 1;
+		for (int i = 1; i != args; ++i)
+		{
+			String filename = filenames.arg(i).checkjstring();
+
+			File file = new File(filename);
+			if (!file.exists())
+				throw new LuaError("File " + filename + " does not exist.");
+
+			files.add(file);
+		}
+		
+		try
+		{
+			mapping.loadMappings(files);
+		}
+		catch (Exception e)
+		{
+			throw new LuaError(e);
+		}
+		
+		return new LuaUserdata(mapping, SrgMappingMeta.getMetaTable());
+	}
+
+	/**
+	 * Lua Closure for MappingFactory.loadBinary(filename, ...).
+	 * Loads all specified binary mapping files (see mapping:saveBinary) into a single srg mapping.
+	 * 
+	 * @param filenames The filenames to load
+	 * @return The SrgMapping (as UserData)
+	 */
+	private static LuaValue loadBinaryMapping(Varargs filenames)
+	{
+		SrgMapping mapping = new SrgMapping();
 		
 		int args = filenames.narg() + 1;
 		for (int i = 1; i != args; ++i)
@@ -124,7 +172,7 @@ public class MappingLib extends TwoArgFunction
 
 			try
 			{
-				mapping.loadMapping(file);
+				mapping.loadBinary(file);
 			}
 			catch (Exception e)
 			{
@@ -134,6 +182,31 @@ public class MappingLib extends TwoArgFunction
 		
 		return new LuaUserdata(mapping, SrgMappingMeta.getMetaTable());
 	}
+	
+	/**
+	 * Lua Closure for MappingFactory.loadDelta(filename).
+	 * Loads a mapping delta saved with delta:saveToFile(filename).
+	 * 
+	 * @param filename The filename to load
+	 * @return The SrgMappingDelta (as UserData)
+	 */
+	private static LuaValue loadDelta(String filename)
+	{
+		File file = new File(filename);
+		if (!file.exists())
+			throw new LuaError("File " + filename + " does not exist.");
+		
+		try
+		{
+			SrgMappingDelta delta = new SrgMappingDelta();
+			delta.load(file);
+			return new LuaUserdata(delta, SrgMappingDeltaMeta.getMetaTable());
+		}
+		catch (Exception e)
+		{
+			throw new LuaError(e);
+		}
+	}
 
 	/**
 	 * Lua Closure for MappingFactory.loadMCP(fieldsFile, methodsFile, packagesFile).
@@ -197,8 +270,8 @@ public class MappingLib extends TwoArgFunction
 			int classCount = inVisitor.classes.size();
 			for (int i = 0; i != classCount; ++i)
 			{
-				SrgClass inClass = new SrgClass(inVisitor.classes.get(i));
-				SrgClass outClass = new SrgClass(outVisitor.classes.get(i));
+				SrgClass inClass = SrgClass.valueOf(inVisitor.classes.get(i));
+				SrgClass outClass = SrgClass.valueOf(outVisitor.classes.get(i));
 				
 				mapping.addClassMapping(inClass, outClass);
 			}
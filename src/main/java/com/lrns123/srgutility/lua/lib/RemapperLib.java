@@ -82,16 +82,22 @@ public class RemapperLib extends TwoArgFunction
 		{
 	        Jar jar = Jar.init(inJar);
 	        JointProvider inheritanceProviders = new JointProvider();
-	        JarMapping jarMapping = JarMappingAdapter.convertSrgMapping(mapping);
-	        jarMapping.setFallbackInheritanceProvider(inheritanceProviders);
 	        inheritanceProviders.add(new JarProvider(jar));
 	        if (inheritance != null)
 	        {
 	        	inheritanceProviders.add(new InheritanceProviderAdapter(inheritance));
 	        }
-	
-	        JarRemapper jarRemapper = new JarRemapper(jarMapping);
-        	jarRemapper.remapJar(jar, outJar);
+	        
+	        JarMapping jarMapping = JarMappingAdapter.acquireJarMapping(mapping, inheritanceProviders);
+	        try
+	        {
+	        	JarRemapper jarRemapper = new JarRemapper(jarMapping);
+	        	jarRemapper.remapJar(jar, outJar);
+	        }
+	        finally
+	        {
+	        	JarMappingAdapter.releaseJarMapping(jarMapping);
+	        }
 		}
         catch (Throwable e)
         {
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.lua.meta;
+
+import java.io.File;
+
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaUserdata;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.LibFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+
+import com.lrns123.srgutility.srg.MappingPipeline;
+import com.lrns123.srgutility.srg.SrgMapping;
+import com.lrns123.srgutility.transformer.MappingTransformer;
+
+import static com.lrns123.srgutility.lua.util.LuaUtil.getTransformerFromArg;
+
+public class MappingPipelineMeta extends LibFunction
+{
+	private static LuaTable metatable;
+	
+	private static final int OP_TRANSFORM = 0;
+	private static final int OP_FILTER = 1;
+	private static final int OP_IDENTITY = 2;
+	private static final int OP_REVERSE = 3;
+	private static final int OP_MATERIALIZE = 4;
+	private static final int OP_SAVE = 5;
+
+	public static LuaTable getMetaTable()
+	{
+		if (metatable == null)
+			new MappingPipelineMeta();
+		return metatable;
+	}
+
+	private MappingPipelineMeta()
+	{
+		metatable = new LuaTable();
+
+		bind(metatable, MappingPipelineMetaV.class, new String[] { "transform", "filter", "identity", "reverse", "materialize", "saveToFile" });
+		metatable.set(INDEX, metatable);
+		metatable.set(METATABLE, LuaValue.FALSE);
+	}
+
+	public static final class MappingPipelineMetaV extends VarArgFunction
+	{
+		@Override
+		public Varargs invoke(Varargs args)
+		{
+			MappingPipeline instance = (MappingPipeline)args.arg1().checkuserdata(MappingPipeline.class);
+			
+			switch (opcode)
+			{
+				case OP_TRANSFORM:
+					// pipeline:transform(inputTransformer, outputTransformer)
+					return transform(instance, getTransformerFromArg(args.arg(2)), getTransformerFromArg(args.arg(3)));
+				case OP_FILTER:
+					// pipeline:filter(filterSrg)
+					return filter(instance, (SrgMapping)args.arg(2).checkuserdata(SrgMapping.class));
+				case OP_IDENTITY:
+					// pipeline:identity()
+					return new LuaUserdata(instance.identity(), MappingPipelineMeta.getMetaTable());
+				case OP_REVERSE:
+					// pipeline:reverse()
+					return new LuaUserdata(instance.reverse(), MappingPipelineMeta.getMetaTable());
+				case OP_MATERIALIZE:
+					// pipeline:materialize()
+					return new LuaUserdata(instance.materialize(), SrgMappingMeta.getMetaTable());
+				case OP_SAVE:
+					// pipeline:saveToFile(filename)
+					return saveToFile(instance, args.arg(2).checkjstring());
+			}
+			return LuaValue.NONE;
+		}
+	}
+
+	private static LuaValue transform(MappingPipeline instance, MappingTransformer inputTransformer, MappingTransformer outputTransformer)
+	{
+		return new LuaUserdata(instance.transform(inputTransformer, outputTransformer), MappingPipelineMeta.getMetaTable());
+	}
+	
+	private static LuaValue filter(MappingPipeline instance, SrgMapping filter)
+	{
+		return new LuaUserdata(instance.filter(filter), MappingPipelineMeta.getMetaTable());
+	}
+
+	private static LuaValue saveToFile(MappingPipeline instance, String filename)
+	{
+		try
+		{
+			instance.materialize().write(new File(filename));
+			return LuaValue.NONE;
+		}
+		catch (Exception e)
+		{
+			throw new LuaError(e);
+		}
+	}
+}
@@ -27,6 +27,7 @@
 package com.lrns123.srgutility.lua.meta;
 
 import java.io.File;
+import java.util.List;
 
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaTable;
@@ -36,6 +37,7 @@ import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.LibFunction;
 import org.luaj.vm2.lib.VarArgFunction;
 
+import com.lrns123.srgutility.srg.SrgClass;
 import com.lrns123.srgutility.srg.SrgInheritanceMap;
 import com.lrns123.srgutility.transformer.MappingTransformer;
 
@@ -48,6 +50,10 @@ public class SrgInheritanceMapMeta extends LibFunction
 	private static final int OP_SAVE = 0;
 	private static final int OP_CLONE = 1;
 	private static final int OP_TRANSFORM = 2;
+	private static final int OP_FINGERPRINT = 3;
+	private static final int OP_GETANCESTORS = 4;
+	private static final int OP_GETDESCENDANTS = 5;
+	private static final int OP_ISSUBTYPEOF = 6;
 
 	public static LuaTable getMetaTable()
 	{
@@ -60,7 +66,7 @@ public class SrgInheritanceMapMeta extends LibFunction
 	{
 		metatable = new LuaTable();
 
-		bind(metatable, SrgMappingMetaV.class, new String[] { "saveToFile", "clone", "transform"});
+		bind(metatable, SrgMappingMetaV.class, new String[] { "saveToFile", "clone", "transform", "fingerprint", "getAncestors", "getDescendants", "isSubtypeOf"});
 		metatable.set(INDEX, metatable);
 		metatable.set(METATABLE, LuaValue.FALSE);
 	}
@@ -83,6 +89,18 @@ public class SrgInheritanceMapMeta extends LibFunction
 				case OP_TRANSFORM:
 					// mapping:transform(transformer)
 					return transform(instance, getTransformerFromArg(args.arg(2)));
+				case OP_FINGERPRINT:
+					// mapping:fingerprint()
+					return LuaValue.valueOf(instance.fingerprint().toString());
+				case OP_GETANCESTORS:
+					// mapping:getAncestors(className)
+					return toTable(instance.getAncestors(args.arg(2).checkjstring()));
+				case OP_GETDESCENDANTS:
+					// mapping:getDescendants(className)
+					return toTable(instance.getDescendants(args.arg(2).checkjstring()));
+				case OP_ISSUBTYPEOF:
+					// mapping:isSubtypeOf(className, ancestorName)
+					return LuaValue.valueOf(instance.isSubtypeOf(args.arg(2).checkjstring(), args.arg(3).checkjstring()));
 			}
 			return LuaValue.NONE;
 		}
@@ -110,4 +128,14 @@ public class SrgInheritanceMapMeta extends LibFunction
 	{
 		return new LuaUserdata(instance.transform(inputTransformer), SrgInheritanceMapMeta.getMetaTable());
 	}
+	
+	private static LuaTable toTable(List<SrgClass> classes)
+	{
+		LuaTable table = new LuaTable(classes.size(), 0);
+		for (int i = 0; i != classes.size(); ++i)
+		{
+			table.set(i + 1, LuaValue.valueOf(classes.get(i).getQualifiedName()));
+		}
+		return table;
+	}
 }
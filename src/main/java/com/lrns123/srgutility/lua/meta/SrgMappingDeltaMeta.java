@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.lua.meta;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.LibFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+
+import com.lrns123.srgutility.srg.SrgMapping;
+import com.lrns123.srgutility.srg.SrgMappingDelta;
+
+public class SrgMappingDeltaMeta extends LibFunction
+{
+	private static LuaTable metatable;
+	
+	private static final int OP_SAVE = 0;
+	private static final int OP_ENTRIES = 1;
+	private static final int OP_SIZE = 2;
+
+	public static LuaTable getMetaTable()
+	{
+		if (metatable == null)
+			new SrgMappingDeltaMeta();
+		return metatable;
+	}
+
+	private SrgMappingDeltaMeta()
+	{
+		metatable = new LuaTable();
+
+		bind(metatable, SrgMappingDeltaMetaV.class, new String[] { "saveToFile", "entries", "size" });
+		metatable.set(INDEX, metatable);
+		metatable.set(METATABLE, LuaValue.FALSE);
+	}
+
+	public static final class SrgMappingDeltaMetaV extends VarArgFunction
+	{
+		@Override
+		public Varargs invoke(Varargs args)
+		{
+			SrgMappingDelta instance = (SrgMappingDelta)args.arg1().checkuserdata(SrgMappingDelta.class);
+			
+			switch (opcode)
+			{
+				case OP_SAVE:
+					// delta:saveToFile(filename)
+					return saveToFile(instance, args.arg(2).checkjstring());
+				case OP_ENTRIES:
+					// delta:entries()
+					return entries(instance);
+				case OP_SIZE:
+					// delta:size()
+					return LuaValue.valueOf(instance.size());
+			}
+			return LuaValue.NONE;
+		}
+	}
+
+	private static LuaValue saveToFile(SrgMappingDelta instance, String filename)
+	{
+		try
+		{
+			instance.write(new File(filename));
+			return LuaValue.NONE;
+		}
+		catch (Exception e)
+		{
+			throw new LuaError(e);
+		}
+	}
+	
+	/**
+	 * Returns a list of { change = "added" | "removed" | "changed", type = "CL" | "FD" | "MD", input, output[, previous] }.
+	 */
+	private static LuaValue entries(SrgMappingDelta instance)
+	{
+		LuaTable entries = new LuaTable(instance.size(), 0);
+		
+		int i = 1;
+		i = addEntries(entries, i, "removed", instance.getRemoved(), null);
+		i = addEntries(entries, i, "changed", instance.getChanged(), instance.getPrevious());
+		i = addEntries(entries, i, "added", instance.getAdded(), null);
+		
+		return entries;
+	}
+	
+	private static int addEntries(LuaTable entries, int i, String change, SrgMapping mapping, SrgMapping previous)
+	{
+		i = addEntries(entries, i, change, "CL", mapping.getClassMapping(), previous != null ? previous.getClassMapping() : null);
+		i = addEntries(entries, i, change, "FD", mapping.getFieldMapping(), previous != null ? previous.getFieldMapping() : null);
+		i = addEntries(entries, i, change, "MD", mapping.getMethodMapping(), previous != null ? previous.getMethodMapping() : null);
+		return i;
+	}
+	
+	private static <K> int addEntries(LuaTable entries, int i, String change, String type, Map<K, K> table, Map<K, K> previous)
+	{
+		for (Entry<K, K> entry : table.entrySet())
+		{
+			LuaTable item = new LuaTable();
+			item.set("change", change);
+			item.set("type", type);
+			item.set("input", entry.getKey().toString());
+			item.set("output", entry.getValue().toString());
+			if (previous != null)
+				item.set("previous", previous.get(entry.getKey()).toString());
+			
+			entries.set(i++, item);
+		}
+		return i;
+	}
+}
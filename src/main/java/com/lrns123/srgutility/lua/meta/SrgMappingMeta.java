@@ -27,6 +27,8 @@
 package com.lrns123.srgutility.lua.meta;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaTable;
@@ -36,7 +38,18 @@ import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.LibFunction;
 import org.luaj.vm2.lib.VarArgFunction;
 
+import com.lrns123.srgutility.srg.CompactSrgMapping;
+import com.lrns123.srgutility.srg.ConcurrentSrgMapping;
+import com.lrns123.srgutility.srg.ConflictPolicy;
+import com.lrns123.srgutility.srg.ConflictRecorder;
+import com.lrns123.srgutility.srg.FrozenSrgMapping;
+import com.lrns123.srgutility.srg.MappingPipeline;
+import com.lrns123.srgutility.srg.SrgClass;
+import com.lrns123.srgutility.srg.SrgField;
 import com.lrns123.srgutility.srg.SrgMapping;
+import com.lrns123.srgutility.srg.SrgMappingDelta;
+import com.lrns123.srgutility.srg.SrgMethod;
+import com.lrns123.srgutility.srg.SrgWriter;
 import com.lrns123.srgutility.transformer.MappingTransformer;
 import static com.lrns123.srgutility.lua.util.LuaUtil.getTransformerFromArg;
 
@@ -50,6 +63,28 @@ public class SrgMappingMeta extends LibFunction
 	private static final int OP_IDENTITY = 3;
 	private static final int OP_TRANSFORM = 4;
 	private static final int OP_FILTER = 5;
+	private static final int OP_COMPACT = 6;
+	private static final int OP_SAVEBINARY = 7;
+	private static final int OP_COMPOSE = 8;
+	private static final int OP_INDEXOUTPUTS = 9;
+	private static final int OP_GETCLASSBYOUTPUT = 10;
+	private static final int OP_GETFIELDBYOUTPUT = 11;
+	private static final int OP_GETMETHODBYOUTPUT = 12;
+	private static final int OP_PIPELINE = 13;
+	private static final int OP_GETFIELDSOF = 14;
+	private static final int OP_GETMETHODSOF = 15;
+	private static final int OP_GETFIELDSNAMED = 16;
+	private static final int OP_GETMETHODSNAMED = 17;
+	private static final int OP_GETCLASSESIN = 18;
+	private static final int OP_DIFF = 19;
+	private static final int OP_PATCH = 20;
+	private static final int OP_FINGERPRINT = 21;
+	private static final int OP_SETCONFLICTPOLICY = 22;
+	private static final int OP_GETCONFLICTS = 23;
+	private static final int OP_SAVECONFLICTS = 24;
+	private static final int OP_CONCURRENT = 25;
+	private static final int OP_FREEZE = 26;
+	private static final int OP_CLEARCONFLICTS = 27;
 
 	public static LuaTable getMetaTable()
 	{
@@ -62,7 +97,7 @@ public class SrgMappingMeta extends LibFunction
 	{
 		metatable = new LuaTable();
 
-		bind(metatable, SrgMappingMetaV.class, new String[] { "saveToFile", "clone", "reverse", "identity", "transform", "filter" });
+		bind(metatable, SrgMappingMetaV.class, new String[] { "saveToFile", "clone", "reverse", "identity", "transform", "filter", "compact", "saveBinary", "compose", "indexOutputs", "getClassByOutput", "getFieldByOutput", "getMethodByOutput", "pipeline", "getFieldsOf", "getMethodsOf", "getFieldsNamed", "getMethodsNamed", "getClassesIn", "diff", "patch", "fingerprint", "setConflictPolicy", "getConflicts", "saveConflicts", "concurrent", "freeze", "clearConflicts" });
 		metatable.set(INDEX, metatable);
 		metatable.set(METATABLE, LuaValue.FALSE);
 	}
@@ -94,6 +129,74 @@ public class SrgMappingMeta extends LibFunction
 				case OP_FILTER:
 					// mapping:filter(filterSrg)
 					return filter(instance, (SrgMapping)args.arg(2).checkuserdata(SrgMapping.class));
+				case OP_COMPACT:
+					// mapping:compact()
+					return compact(instance);
+				case OP_SAVEBINARY:
+					// mapping:saveBinary(filename)
+					return saveBinary(instance, args.arg(2).checkjstring());
+				case OP_COMPOSE:
+					// mapping:compose(nextMapping[, danglingFile])
+					return compose(instance, (SrgMapping)args.arg(2).checkuserdata(SrgMapping.class), args.arg(3).optjstring(null));
+				case OP_INDEXOUTPUTS:
+					// mapping:indexOutputs()
+					return new LuaUserdata(instance.indexOutputs(), SrgMappingMeta.getMetaTable());
+				case OP_GETCLASSBYOUTPUT:
+					// mapping:getClassByOutput(outputClass)
+					return getClassByOutput(instance, args.arg(2).checkjstring());
+				case OP_GETFIELDBYOUTPUT:
+					// mapping:getFieldByOutput(outputField)
+					return getFieldByOutput(instance, args.arg(2).checkjstring());
+				case OP_GETMETHODBYOUTPUT:
+					// mapping:getMethodByOutput(outputMethod)
+					return getMethodByOutput(instance, args.arg(2).checkjstring());
+				case OP_PIPELINE:
+					// mapping:pipeline()
+					return new LuaUserdata(new MappingPipeline(instance), MappingPipelineMeta.getMetaTable());
+				case OP_GETFIELDSOF:
+					// mapping:getFieldsOf(className)
+					return toTable(instance.getFieldsOf(SrgClass.valueOf(args.arg(2).checkjstring())));
+				case OP_GETMETHODSOF:
+					// mapping:getMethodsOf(className)
+					return toTable(instance.getMethodsOf(SrgClass.valueOf(args.arg(2).checkjstring())));
+				case OP_GETFIELDSNAMED:
+					// mapping:getFieldsNamed(fieldName)
+					return toTable(instance.getFieldsNamed(args.arg(2).checkjstring()));
+				case OP_GETMETHODSNAMED:
+					// mapping:getMethodsNamed(methodName)
+					return toTable(instance.getMethodsNamed(args.arg(2).checkjstring()));
+				case OP_GETCLASSESIN:
+					// mapping:getClassesIn(packageName)
+					return toTable(instance.getClassesIn(args.arg(2).checkjstring()));
+				case OP_DIFF:
+					// mapping:diff(newMapping)
+					return new LuaUserdata(instance.diff((SrgMapping)args.arg(2).checkuserdata(SrgMapping.class)), SrgMappingDeltaMeta.getMetaTable());
+				case OP_PATCH:
+					// mapping:patch(delta)
+					return new LuaUserdata(instance.patch((SrgMappingDelta)args.arg(2).checkuserdata(SrgMappingDelta.class)), SrgMappingMeta.getMetaTable());
+				case OP_FINGERPRINT:
+					// mapping:fingerprint()
+					return LuaValue.valueOf(instance.fingerprint().toString());
+				case OP_SETCONFLICTPOLICY:
+					// mapping:setConflictPolicy("first"|"last"|"error"[, record[, shared]])
+					instance.setConflictPolicy(getConflictPolicy(args.arg(2).checkjstring(), args.arg(3).optboolean(true), args.arg(4).optboolean(false)));
+					return args.arg1();
+				case OP_GETCONFLICTS:
+					// mapping:getConflicts() -> conflicts, total count
+					return getConflicts(instance);
+				case OP_SAVECONFLICTS:
+					// mapping:saveConflicts(filename)
+					return saveConflicts(instance, args.arg(2).checkjstring());
+				case OP_CONCURRENT:
+					// mapping:concurrent()
+					return new LuaUserdata(new ConcurrentSrgMapping(instance), SrgMappingMeta.getMetaTable());
+				case OP_FREEZE:
+					// mapping:freeze()
+					return new LuaUserdata(new FrozenSrgMapping(instance), SrgMappingMeta.getMetaTable());
+				case OP_CLEARCONFLICTS:
+					// mapping:clearConflicts()
+					getRecorder(instance).clear();
+					return LuaValue.NONE;
 			}
 			return LuaValue.NONE;
 		}
@@ -112,6 +215,19 @@ public class SrgMappingMeta extends LibFunction
 		}
 	}
 
+	private static LuaValue saveBinary(SrgMapping instance, String filename)
+	{
+		try
+		{
+			instance.writeBinary(new File(filename));
+			return LuaValue.NONE;
+		}
+		catch (Exception e)
+		{
+			throw new LuaError(e);
+		}
+	}
+
 	private static LuaValue clone(SrgMapping instance)
 	{
 		return new LuaUserdata(instance.clone(), SrgMappingMeta.getMetaTable());
@@ -136,4 +252,160 @@ public class SrgMappingMeta extends LibFunction
 	{
 		return new LuaUserdata(instance.filter(filter), SrgMappingMeta.getMetaTable());
 	}
+	
+	private static LuaValue compact(SrgMapping instance)
+	{
+		return new LuaUserdata(new CompactSrgMapping(instance), SrgMappingMeta.getMetaTable());
+	}
+	
+	private static LuaValue compose(SrgMapping instance, SrgMapping next, String danglingFile)
+	{
+		if (danglingFile == null)
+			return new LuaUserdata(instance.compose(next), SrgMappingMeta.getMetaTable());
+		
+		try
+		{
+			SrgWriter dangling = new SrgWriter(new File(danglingFile));
+			try
+			{
+				instance.compose(next, dangling);
+			}
+			finally
+			{
+				dangling.close();
+			}
+			
+			return new LuaUserdata(instance, SrgMappingMeta.getMetaTable());
+		}
+		catch (IOException e)
+		{
+			throw new LuaError(e);
+		}
+	}
+	
+	private static ConflictPolicy getConflictPolicy(String name, boolean record, boolean shared)
+	{
+		ConflictPolicy policy;
+		if (name.equals("first"))
+			policy = ConflictPolicy.KEEP_FIRST;
+		else if (name.equals("last"))
+			policy = ConflictPolicy.KEEP_LAST;
+		else if (name.equals("error"))
+			policy = ConflictPolicy.ERROR;
+		else
+			throw new LuaError("Unknown conflict policy " + name + ", expected first, last or error");
+		
+		return record ? new ConflictRecorder(policy, shared) : policy;
+	}
+	
+	/**
+	 * Returns the recorded conflicts as a list of { input, kept, rejected } tables, and the number of conflicts
+	 * including those past the recorder's limit.
+	 */
+	private static Varargs getConflicts(SrgMapping instance)
+	{
+		ConflictRecorder recorder = getRecorder(instance);
+		
+		synchronized (recorder)
+		{
+			LuaTable table = new LuaTable(recorder.size(), 0);
+			for (int i = 0; i != recorder.size(); ++i)
+			{
+				LuaTable conflict = new LuaTable(0, 3);
+				conflict.set("input", recorder.getInput(i).toString());
+				conflict.set("kept", recorder.getKept(i).toString());
+				conflict.set("rejected", recorder.getRejected(i).toString());
+				table.set(i + 1, conflict);
+			}
+			return LuaValue.varargsOf(table, LuaValue.valueOf(recorder.getCount()));
+		}
+	}
+	
+	private static LuaValue saveConflicts(SrgMapping instance, String filename)
+	{
+		try
+		{
+			getRecorder(instance).write(new File(filename));
+			return LuaValue.NONE;
+		}
+		catch (IOException e)
+		{
+			throw new LuaError(e);
+		}
+	}
+	
+	private static ConflictRecorder getRecorder(SrgMapping instance)
+	{
+		if (!(instance.getConflictPolicy() instanceof ConflictRecorder))
+			throw new LuaError("Conflicts are not recorded for this mapping");
+		
+		return (ConflictRecorder) instance.getConflictPolicy();
+	}
+	
+	/**
+	 * Returns the input mapped to the output, or all inputs if more than one input maps to it.
+	 */
+	private static Varargs getClassByOutput(SrgMapping instance, String output)
+	{
+		SrgClass input = instance.getClassByOutput(output);
+		if (input == null)
+			return LuaValue.NIL;
+		
+		return toVarargs(input, instance.getClassCollisions().get(SrgClass.valueOf(output)));
+	}
+	
+	private static Varargs getFieldByOutput(SrgMapping instance, String output)
+	{
+		try
+		{
+			SrgField input = instance.getFieldByOutput(output);
+			if (input == null)
+				return LuaValue.NIL;
+			
+			return toVarargs(input, instance.getFieldCollisions().get(new SrgField(output)));
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new LuaError(e);
+		}
+	}
+	
+	private static Varargs getMethodByOutput(SrgMapping instance, String output)
+	{
+		try
+		{
+			SrgMethod input = instance.getMethodByOutput(output);
+			if (input == null)
+				return LuaValue.NIL;
+			
+			return toVarargs(input, instance.getMethodCollisions().get(new SrgMethod(output)));
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new LuaError(e);
+		}
+	}
+	
+	private static Varargs toVarargs(Object input, List<?> collisions)
+	{
+		if (collisions == null)
+			return LuaValue.valueOf(input.toString());
+		
+		LuaValue[] values = new LuaValue[collisions.size()];
+		for (int i = 0; i != values.length; ++i)
+		{
+			values[i] = LuaValue.valueOf(collisions.get(i).toString());
+		}
+		return LuaValue.varargsOf(values);
+	}
+	
+	private static LuaTable toTable(List<?> symbols)
+	{
+		LuaTable table = new LuaTable(symbols.size(), 0);
+		for (int i = 0; i != symbols.size(); ++i)
+		{
+			table.set(i + 1, LuaValue.valueOf(symbols.get(i).toString()));
+		}
+		return table;
+	}
 }
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Intern table keyed on raw (UTF-8) bytes.
+ * 
+ * Returns the same String for every occurrence of a byte sequence, so a name is only decoded once.
+ * When the table exceeds its maximum size it is cleared, bounding its memory use. Not thread-safe.
+ */
+final class ByteStringTable
+{
+	private byte[][] keys;
+	private String[] values;
+	private int[] hashes;
+	private int size;
+	private final int maxSize;
+	
+	/**
+	 * @param maxSize Maximum number of strings to keep
+	 */
+	ByteStringTable(int maxSize)
+	{
+		int capacity = SrgStringTable.tableSizeFor(Math.min(maxSize, 4096) * 2);
+		keys = new byte[capacity][];
+		values = new String[capacity];
+		hashes = new int[capacity];
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Returns the string for the bytes in [start, end) of the buffer.
+	 */
+	String get(ByteBuffer buffer, int start, int end)
+	{
+		int hash = 0;
+		for (int i = start; i != end; ++i)
+		{
+			hash = 31 * hash + buffer.get(i);
+		}
+		
+		int mask = keys.length - 1;
+		int slot;
+		
+		for (slot = SrgStringTable.mix(hash) & mask;; slot = (slot + 1) & mask)
+		{
+			byte[] key = keys[slot];
+			if (key == null)
+				break;
+			
+			if (hashes[slot] == hash && matches(key, buffer, start, end))
+				return values[slot];
+		}
+		
+		byte[] key = new byte[end - start];
+		for (int i = start; i != end; ++i)
+		{
+			key[i - start] = buffer.get(i);
+		}
+		
+		String value = new String(key, StandardCharsets.UTF_8);
+		keys[slot] = key;
+		values[slot] = value;
+		hashes[slot] = hash;
+		
+		if (++size > maxSize)
+			clear();
+		else if (size * 2 > keys.length)
+			rehash(keys.length * 2); // Keep the load factor at or below 0.5
+		
+		return value;
+	}
+	
+	private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end)
+	{
+		if (key.length != end - start)
+			return false;
+		
+		for (int i = 0; i != key.length; ++i)
+		{
+			if (key[i] != buffer.get(start + i))
+				return false;
+		}
+		return true;
+	}
+	
+	private void clear()
+	{
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+	
+	private void rehash(int capacity)
+	{
+		byte[][] oldKeys = keys;
+		String[] oldValues = values;
+		int[] oldHashes = hashes;
+		
+		keys = new byte[capacity][];
+		values = new String[capacity];
+		hashes = new int[capacity];
+		
+		int mask = capacity - 1;
+		for (int i = 0; i != oldKeys.length; ++i)
+		{
+			if (oldKeys[i] == null)
+				continue;
+			
+			int slot = SrgStringTable.mix(oldHashes[i]) & mask;
+			while (keys[slot] != null)
+				slot = (slot + 1) & mask;
+			
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+			hashes[slot] = oldHashes[i];
+		}
+	}
+}
@@ -0,0 +1,528 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Mapping table that stores symbols as string table ids in parallel int arrays.
+ * 
+ * Each symbol is encoded as a fixed number of ids (its width). Rows are indexed by an open-addressing
+ * hash index over the input symbol. Symbols are only materialized when they are read, so iterating over the table
+ * does not keep any of them alive. Only the outputs of the most recent lookups are kept, in a small cache of
+ * {@value #CACHE_SIZE} rows, so repeated lookups of the same inputs do not decode them again.
+ * 
+ * Removing an entry moves the last row into its place. Not thread-safe, but concurrent reads are allowed: cache entries
+ * are immutable, so racing readers at worst replace each other's entries.
+ */
+abstract class ColumnarTable<K> extends AbstractMap<K, K>
+{
+	/**
+	 * Number of cached lookup results, a power of two.
+	 */
+	static final int CACHE_SIZE = 256;
+	
+	protected final SrgStringTable strings;
+	
+	private final int width;
+	
+	/**
+	 * Columns [0, width) hold the input symbol, columns [width, 2 * width) the output symbol.
+	 */
+	private final int[][] columns;
+	private int[] hashes;
+	private int size;
+	
+	/**
+	 * Open-addressing index, holds (row + 1) or 0 for an empty slot.
+	 */
+	private int[] index;
+	
+	/**
+	 * Outputs of recent lookups, row r at r modulo the cache size.
+	 */
+	@SuppressWarnings("unchecked")
+	private final CachedRow<K>[] cache = new CachedRow[CACHE_SIZE];
+	
+	ColumnarTable(SrgStringTable strings, int width, int expectedSize)
+	{
+		int capacity = Math.max(16, expectedSize);
+		
+		this.strings = strings;
+		this.width = width;
+		this.columns = new int[width * 2][capacity];
+		this.hashes = new int[capacity];
+		this.index = new int[SrgStringTable.tableSizeFor(capacity * 2)];
+	}
+	
+	/**
+	 * Encodes a symbol into string table ids.
+	 * @param symbol The symbol to encode
+	 * @param ids Receives the ids, has length width
+	 * @param add Whether missing strings should be added to the string table
+	 * @return false if the symbol is of the wrong type, or add is false and one of its strings is not in the table.
+	 */
+	protected abstract boolean encode(Object symbol, int[] ids, boolean add);
+	
+	/**
+	 * Materializes a symbol from its string table ids.
+	 */
+	protected abstract K decode(int[] ids);
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return findRow(key) != -1;
+	}
+	
+	@Override
+	public K get(Object key)
+	{
+		int row = findRow(key);
+		if (row == -1)
+			return null;
+		
+		CachedRow<K> cached = cache[row & (CACHE_SIZE - 1)];
+		if (cached != null && cached.row == row)
+			return cached.output;
+		
+		K output = decodeRow(row, width);
+		cache[row & (CACHE_SIZE - 1)] = new CachedRow<K>(row, output);
+		return output;
+	}
+	
+	@Override
+	public K put(K key, K value)
+	{
+		int[] inIds = new int[width];
+		int[] outIds = new int[width];
+		
+		if (!encode(key, inIds, true) || !encode(value, outIds, true))
+			throw new IllegalArgumentException("Cannot store " + key + " -> " + value);
+		
+		int hash = key.hashCode();
+		int mask = index.length - 1;
+		int slot;
+		
+		for (slot = SrgStringTable.mix(hash) & mask;; slot = (slot + 1) & mask)
+		{
+			int entry = index[slot];
+			if (entry == 0)
+				break;
+			
+			int row = entry - 1;
+			if (hashes[row] == hash && rowEquals(row, inIds))
+			{
+				K previous = decodeRow(row, width);
+				setIds(row, width, outIds);
+				cache[row & (CACHE_SIZE - 1)] = null;
+				return previous;
+			}
+		}
+		
+		if (size == hashes.length)
+			grow();
+		
+		int row = size++;
+		setIds(row, 0, inIds);
+		setIds(row, width, outIds);
+		hashes[row] = hash;
+		index[slot] = row + 1;
+		
+		// Keep the load factor at or below 0.5
+		if (size * 2 > index.length)
+			rehash(index.length * 2);
+		
+		return null;
+	}
+	
+	@Override
+	public K remove(Object key)
+	{
+		int slot = findSlot(key);
+		if (slot == -1)
+			return null;
+		
+		int row = index[slot] - 1;
+		K previous = decodeRow(row, width);
+		deleteSlot(slot);
+		
+		int last = --size;
+		if (row != last)
+		{
+			// Move the last row into the freed row
+			int lastSlot = slotOf(last);
+			for (int i = 0; i != columns.length; ++i)
+			{
+				columns[i][row] = columns[i][last];
+			}
+			hashes[row] = hashes[last];
+			index[lastSlot] = row + 1;
+		}
+		cache[row & (CACHE_SIZE - 1)] = null;
+		cache[last & (CACHE_SIZE - 1)] = null;
+		
+		return previous;
+	}
+	
+	@Override
+	public void clear()
+	{
+		size = 0;
+		Arrays.fill(index, 0);
+		Arrays.fill(cache, null);
+	}
+	
+	@Override
+	public Set<K> keySet()
+	{
+		return new RowSet<K>()
+		{
+			@Override
+			K element(int row)
+			{
+				return decodeRow(row, 0);
+			}
+			
+			@Override
+			public boolean contains(Object o)
+			{
+				return containsKey(o);
+			}
+		};
+	}
+	
+	@Override
+	public Set<Map.Entry<K, K>> entrySet()
+	{
+		return new RowSet<Map.Entry<K, K>>()
+		{
+			@Override
+			Map.Entry<K, K> element(int row)
+			{
+				return new SimpleImmutableEntry<K, K>(decodeRow(row, 0), decodeRow(row, width));
+			}
+		};
+	}
+	
+	private int findRow(Object key)
+	{
+		int slot = findSlot(key);
+		return slot != -1 ? index[slot] - 1 : -1;
+	}
+	
+	/**
+	 * Returns the index slot holding the row of a key, or -1 if the key is not in the table.
+	 */
+	private int findSlot(Object key)
+	{
+		if (key == null)
+			return -1;
+		
+		int[] ids = new int[width];
+		if (!encode(key, ids, false))
+			return -1;
+		
+		int hash = key.hashCode();
+		int mask = index.length - 1;
+		
+		for (int slot = SrgStringTable.mix(hash) & mask;; slot = (slot + 1) & mask)
+		{
+			int entry = index[slot];
+			if (entry == 0)
+				return -1;
+			
+			int row = entry - 1;
+			if (hashes[row] == hash && rowEquals(row, ids))
+				return slot;
+		}
+	}
+	
+	/**
+	 * Returns the index slot holding a row.
+	 */
+	private int slotOf(int row)
+	{
+		int mask = index.length - 1;
+		int slot = SrgStringTable.mix(hashes[row]) & mask;
+		
+		while (index[slot] != row + 1)
+			slot = (slot + 1) & mask;
+		
+		return slot;
+	}
+	
+	/**
+	 * Clears an index slot, shifting back later entries of the probe sequence so lookups never hit a gap.
+	 */
+	private void deleteSlot(int slot)
+	{
+		int mask = index.length - 1;
+		int hole = slot;
+		
+		for (int next = (hole + 1) & mask;; next = (next + 1) & mask)
+		{
+			int entry = index[next];
+			if (entry == 0)
+				break;
+			
+			// Entries whose home slot lies cyclically after the hole must stay put
+			int home = SrgStringTable.mix(hashes[entry - 1]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask))
+			{
+				index[hole] = entry;
+				hole = next;
+			}
+		}
+		
+		index[hole] = 0;
+	}
+	
+	private boolean rowEquals(int row, int[] ids)
+	{
+		for (int i = 0; i != width; ++i)
+		{
+			if (columns[i][row] != ids[i])
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the string table id of a value, or -1 if add is false and the value is not in the table.
+	 */
+	protected final int id(String value, boolean add)
+	{
+		return add ? strings.add(value) : strings.find(value);
+	}
+	
+	/**
+	 * Materializes the symbol stored in the columns [offset, offset + width) of a row.
+	 */
+	private K decodeRow(int row, int offset)
+	{
+		int[] ids = new int[width];
+		for (int i = 0; i != width; ++i)
+		{
+			ids[i] = columns[offset + i][row];
+		}
+		return decode(ids);
+	}
+	
+	private void setIds(int row, int offset, int[] ids)
+	{
+		for (int i = 0; i != width; ++i)
+		{
+			columns[offset + i][row] = ids[i];
+		}
+	}
+	
+	private void grow()
+	{
+		int capacity = hashes.length * 2;
+		
+		for (int i = 0; i != columns.length; ++i)
+		{
+			columns[i] = Arrays.copyOf(columns[i], capacity);
+		}
+		hashes = Arrays.copyOf(hashes, capacity);
+	}
+	
+	private void rehash(int capacity)
+	{
+		int[] newIndex = new int[capacity];
+		int mask = capacity - 1;
+		
+		for (int row = 0; row != size; ++row)
+		{
+			int slot = SrgStringTable.mix(hashes[row]) & mask;
+			while (newIndex[slot] != 0)
+				slot = (slot + 1) & mask;
+			
+			newIndex[slot] = row + 1;
+		}
+		
+		index = newIndex;
+	}
+	
+	/**
+	 * Cached output of a row.
+	 */
+	private static final class CachedRow<K>
+	{
+		private final int row;
+		private final K output;
+		
+		CachedRow(int row, K output)
+		{
+			this.row = row;
+			this.output = output;
+		}
+	}
+	
+	/**
+	 * Read-only view over the rows of the table.
+	 */
+	private abstract class RowSet<E> extends AbstractSet<E>
+	{
+		abstract E element(int row);
+		
+		@Override
+		public int size()
+		{
+			return size;
+		}
+		
+		@Override
+		public Iterator<E> iterator()
+		{
+			return new Iterator<E>()
+			{
+				private int row = 0;
+				
+				@Override
+				public boolean hasNext()
+				{
+					return row < size;
+				}
+				
+				@Override
+				public E next()
+				{
+					if (row >= size)
+						throw new NoSuchElementException();
+					
+					return element(row++);
+				}
+				
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+	
+	/**
+	 * Class table, stores the qualified name.
+	 */
+	static final class ClassTable extends ColumnarTable<SrgClass>
+	{
+		ClassTable(SrgStringTable strings, int expectedSize)
+		{
+			super(strings, 1, expectedSize);
+		}
+
+		@Override
+		protected boolean encode(Object symbol, int[] ids, boolean add)
+		{
+			if (!(symbol instanceof SrgClass))
+				return false;
+			
+			ids[0] = id(((SrgClass) symbol).getQualifiedName(), add);
+			return ids[0] != -1;
+		}
+
+		@Override
+		protected SrgClass decode(int[] ids)
+		{
+			return SrgClass.valueOf(strings.get(ids[0]));
+		}
+	}
+	
+	/**
+	 * Field table, stores package, class and field name.
+	 */
+	static final class FieldTable extends ColumnarTable<SrgField>
+	{
+		FieldTable(SrgStringTable strings, int expectedSize)
+		{
+			super(strings, 3, expectedSize);
+		}
+
+		@Override
+		protected boolean encode(Object symbol, int[] ids, boolean add)
+		{
+			if (!(symbol instanceof SrgField))
+				return false;
+			
+			SrgField field = (SrgField) symbol;
+			return (ids[0] = id(field.getPackageName(), add)) != -1
+				&& (ids[1] = id(field.getClassName(), add)) != -1
+				&& (ids[2] = id(field.getFieldName(), add)) != -1;
+		}
+
+		@Override
+		protected SrgField decode(int[] ids)
+		{
+			return new SrgField(strings.get(ids[0]), strings.get(ids[1]), strings.get(ids[2]));
+		}
+	}
+	
+	/**
+	 * Method table, stores package, class and method name, and the method descriptor.
+	 */
+	static final class MethodTable extends ColumnarTable<SrgMethod>
+	{
+		MethodTable(SrgStringTable strings, int expectedSize)
+		{
+			super(strings, 4, expectedSize);
+		}
+
+		@Override
+		protected boolean encode(Object symbol, int[] ids, boolean add)
+		{
+			if (!(symbol instanceof SrgMethod))
+				return false;
+			
+			SrgMethod method = (SrgMethod) symbol;
+			return (ids[0] = id(method.getPackageName(), add)) != -1
+				&& (ids[1] = id(method.getClassName(), add)) != -1
+				&& (ids[2] = id(method.getMethodName(), add)) != -1
+				&& (ids[3] = id(method.getMethodDescriptor(), add)) != -1;
+		}
+
+		@Override
+		protected SrgMethod decode(int[] ids)
+		{
+			return new SrgMethod(strings.get(ids[0]), strings.get(ids[1]), strings.get(ids[2]), strings.get(ids[3]));
+		}
+	}
+}
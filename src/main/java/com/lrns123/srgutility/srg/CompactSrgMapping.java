@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.Map.Entry;
+
+/**
+ * SrgMapping backed by columnar storage.
+ * 
+ * All names are kept in a deduplicated string table, and the mapping tables only hold string ids
+ * in parallel int arrays. Symbols are materialized on access and not kept, apart from a few recent lookup
+ * results, which trades some lookup speed for a much smaller footprint. Useful for large mappings that are
+ * kept alive for a long time.
+ * 
+ * Mappings derived from a compact mapping share its string table, which therefore holds the names of all of them.
+ */
+public class CompactSrgMapping extends SrgMapping
+{
+	/**
+	 * Shared with every mapping derived from this one, such as copies, clones and inverse tables.
+	 */
+	private final SrgStringTable strings;
+	
+	public CompactSrgMapping()
+	{
+		this(new SrgStringTable(), 0, 0, 0);
+	}
+	
+	/**
+	 * Creates a compact copy of a mapping.
+	 * @param other The mapping to copy
+	 */
+	public CompactSrgMapping(SrgMapping other)
+	{
+		this(new SrgStringTable(), other.classTable().size(), other.fieldTable().size(), other.methodTable().size());
+		
+		for (Entry<SrgClass, SrgClass> entry : other.classTable().entrySet())
+		{
+			addClassMapping(entry.getKey(), entry.getValue());
+		}
+
+		for (Entry<SrgField, SrgField> entry : other.fieldTable().entrySet())
+		{
+			addFieldMapping(entry.getKey(), entry.getValue());
+		}
+
+		for (Entry<SrgMethod, SrgMethod> entry : other.methodTable().entrySet())
+		{
+			addMethodMapping(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	private CompactSrgMapping(SrgStringTable strings, int classMappings, int fieldMappings, int methodMappings)
+	{
+		super(new ColumnarTable.ClassTable(strings, classMappings), new ColumnarTable.FieldTable(strings, fieldMappings), new ColumnarTable.MethodTable(strings, methodMappings));
+		this.strings = strings;
+	}
+	
+	@Override
+	protected SrgMapping createEmpty(int classMappings, int fieldMappings, int methodMappings)
+	{
+		return new CompactSrgMapping(strings, classMappings, fieldMappings, methodMappings);
+	}
+}
@@ -0,0 +1,385 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Numbered form of an inheritance map that answers subtype checks with integer comparisons.
+ * 
+ * The first parent of every class (usually its superclass) forms a spanning forest, which is numbered in pre- and
+ * post-order, so a class descends from another through first parents exactly when its interval lies within the
+ * interval of the other. The remaining parents (usually interfaces) are the targets of non-tree edges. Those targets
+ * and their tree ancestors are the only classes that can be reached through such an edge, so they get a bit number,
+ * and every class stores the bits of these classes it reaches in a compact bitset.
+ * 
+ * Immutable, and therefore safe to share between threads. Changes to the inheritance map are not reflected, see
+ * {@link SrgInheritanceMap#compile()}.
+ */
+public final class CompiledHierarchy
+{
+	private static final long[] NO_BITS = new long[0];
+	
+	private final Map<SrgClass, Integer> ids = new HashMap<SrgClass, Integer>();
+	private final int[] pre;
+	private final int[] post;
+	
+	/**
+	 * Bit number of each class, or -1 for classes that can only be reached through first parents.
+	 */
+	private final int[] bit;
+	private final long[][] bits;
+	
+	CompiledHierarchy(Map<SrgClass, List<SrgClass>> parents)
+	{
+		for (Entry<SrgClass, List<SrgClass>> entry : parents.entrySet())
+		{
+			id(entry.getKey());
+			for (SrgClass parent : entry.getValue())
+			{
+				id(parent);
+			}
+		}
+		
+		int count = ids.size();
+		
+		// Parents of every class as slices of one array, self references left out
+		int edgeCount = 0;
+		for (List<SrgClass> classParents : parents.values())
+		{
+			edgeCount += classParents.size();
+		}
+		
+		int[] edgeStart = new int[count + 1];
+		int[] edges = new int[edgeCount];
+		edgeCount = 0;
+		
+		SrgClass[] classes = new SrgClass[count];
+		for (Entry<SrgClass, Integer> entry : ids.entrySet())
+		{
+			classes[entry.getValue()] = entry.getKey();
+		}
+		
+		for (int i = 0; i != count; ++i)
+		{
+			edgeStart[i] = edgeCount;
+			List<SrgClass> classParents = parents.get(classes[i]);
+			if (classParents == null)
+				continue;
+			
+			for (SrgClass parent : classParents)
+			{
+				int p = ids.get(parent);
+				if (p != i)
+					edges[edgeCount++] = p;
+			}
+		}
+		edgeStart[count] = edgeCount;
+		
+		// Pick the first parent that does not close a cycle as tree parent, the others become non-tree edges
+		int[] treeParent = new int[count];
+		Arrays.fill(treeParent, -1);
+		int[] roots = new int[count];
+		for (int i = 0; i != count; ++i)
+		{
+			roots[i] = i;
+		}
+		
+		boolean[] reachedByEdge = new boolean[count];
+		for (int i = 0; i != count; ++i)
+		{
+			for (int e = edgeStart[i]; e != edgeStart[i + 1]; ++e)
+			{
+				int p = edges[e];
+				if (treeParent[i] == -1 && root(roots, p) != i)
+				{
+					// Class i is still the root of its tree, so linking it below p keeps the forest a forest
+					treeParent[i] = p;
+					roots[i] = p;
+				}
+				else if (p != treeParent[i])
+				{
+					reachedByEdge[p] = true;
+				}
+			}
+		}
+		
+		this.pre = new int[count];
+		this.post = new int[count];
+		number(treeParent);
+		
+		// Targets of non-tree edges and their tree ancestors get bit numbers
+		this.bit = new int[count];
+		Arrays.fill(bit, -1);
+		int bitCount = 0;
+		for (int i = 0; i != count; ++i)
+		{
+			for (int c = i; c != -1 && reachedByEdge[i] && bit[c] == -1; c = treeParent[c])
+			{
+				bit[c] = bitCount++;
+			}
+		}
+		
+		this.bits = new long[count][];
+		computeBits(edgeStart, edges, (bitCount + 63) >>> 6);
+	}
+	
+	/**
+	 * Computes the bits every class reaches, by walking the strongly connected components of the parent graph
+	 * (Tarjan's algorithm, without recursion). A component completes after all components it reaches, so its bits
+	 * are the union of its own and those of its parents. Classes that add no bits share the array of a parent.
+	 */
+	private void computeBits(int[] edgeStart, int[] edges, int words)
+	{
+		int count = bit.length;
+		int[] order = new int[count];
+		int[] low = new int[count];
+		Arrays.fill(order, -1);
+		boolean[] done = new boolean[count];
+		
+		int[] component = new int[count];
+		int componentSize = 0;
+		boolean[] onComponent = new boolean[count];
+		
+		int[] frames = new int[count];
+		int[] frameEdge = new int[count];
+		int counter = 0;
+		
+		for (int start = 0; start != count; ++start)
+		{
+			if (order[start] != -1)
+				continue;
+			
+			int depth = 0;
+			frames[0] = start;
+			frameEdge[0] = edgeStart[start];
+			order[start] = low[start] = counter++;
+			component[componentSize++] = start;
+			onComponent[start] = true;
+			
+			while (depth >= 0)
+			{
+				int c = frames[depth];
+				
+				if (frameEdge[depth] != edgeStart[c + 1])
+				{
+					int p = edges[frameEdge[depth]++];
+					if (order[p] == -1)
+					{
+						order[p] = low[p] = counter++;
+						component[componentSize++] = p;
+						onComponent[p] = true;
+						frames[++depth] = p;
+						frameEdge[depth] = edgeStart[p];
+					}
+					else if (onComponent[p])
+					{
+						low[c] = Math.min(low[c], order[p]);
+					}
+					continue;
+				}
+				
+				--depth;
+				if (depth >= 0)
+					low[frames[depth]] = Math.min(low[frames[depth]], low[c]);
+				
+				if (low[c] != order[c])
+					continue;
+				
+				// c completes a component, made up of the classes above it on the component stack
+				int first = componentSize;
+				do
+				{
+					--first;
+				}
+				while (component[first] != c);
+				
+				long[] set = NO_BITS;
+				boolean owned = false;
+				
+				for (int m = first; m != componentSize; ++m)
+				{
+					int member = component[m];
+					if (bit[member] != -1 && (set.length == 0 || (set[bit[member] >>> 6] & (1L << bit[member])) == 0))
+					{
+						if (!owned)
+						{
+							set = set.length == 0 ? new long[words] : set.clone();
+							owned = true;
+						}
+						set[bit[member] >>> 6] |= 1L << bit[member];
+					}
+					
+					for (int e = edgeStart[member]; e != edgeStart[member + 1]; ++e)
+					{
+						long[] other = bits[edges[e]];
+						if (!done[edges[e]] || other == set || other.length == 0)
+							continue;
+						
+						if (set.length == 0)
+						{
+							set = other;
+							continue;
+						}
+						
+						for (int w = 0; w != words; ++w)
+						{
+							if ((other[w] & ~set[w]) != 0)
+							{
+								if (!owned)
+								{
+									set = set.clone();
+									owned = true;
+								}
+								set[w] |= other[w];
+							}
+						}
+					}
+				}
+				
+				for (int m = first; m != componentSize; ++m)
+				{
+					bits[component[m]] = set;
+					onComponent[component[m]] = false;
+					done[component[m]] = true;
+				}
+				componentSize = first;
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether a class is, or extends or implements (directly or indirectly), another class.
+	 */
+	public boolean isSubtypeOf(SrgClass clazz, SrgClass ancestor)
+	{
+		Integer c = ids.get(clazz);
+		Integer a = ids.get(ancestor);
+		
+		if (c == null || a == null)
+			return clazz.equals(ancestor);
+		
+		if (pre[a] <= pre[c] && post[c] <= post[a])
+			return true;
+		
+		int b = bit[a];
+		if (b == -1)
+			return false;
+		
+		long[] set = bits[c];
+		return (b >>> 6) < set.length && (set[b >>> 6] & (1L << b)) != 0;
+	}
+	
+	/**
+	 * Returns the number of classes in the hierarchy.
+	 */
+	public int size()
+	{
+		return pre.length;
+	}
+	
+	private int id(SrgClass clazz)
+	{
+		Integer id = ids.get(clazz);
+		if (id == null)
+		{
+			id = ids.size();
+			ids.put(clazz, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * Numbers the forest in pre- and post-order, without recursion.
+	 */
+	private void number(int[] treeParent)
+	{
+		int count = treeParent.length;
+		
+		// Children of every class, as slices of one array
+		int[] childStart = new int[count + 2];
+		for (int i = 0; i != count; ++i)
+		{
+			++childStart[treeParent[i] + 2];
+		}
+		for (int i = 0; i <= count; ++i)
+		{
+			childStart[i + 1] += childStart[i];
+		}
+		int[] children = new int[count];
+		for (int i = 0; i != count; ++i)
+		{
+			children[childStart[treeParent[i] + 1]++] = i;
+		}
+		// childStart[c + 1] now ends the children of c, and childStart[c] starts them (c = -1 holds the roots)
+		
+		int[] stack = new int[count];
+		int[] next = new int[count];
+		int order = 0;
+		int postOrder = 0;
+		
+		for (int r = 0, roots = childStart[0]; r != roots; ++r)
+		{
+			int depth = 0;
+			stack[0] = children[r];
+			next[0] = childStart[children[r]];
+			pre[children[r]] = order++;
+			
+			while (depth >= 0)
+			{
+				int c = stack[depth];
+				if (next[depth] != childStart[c + 1])
+				{
+					int child = children[next[depth]++];
+					pre[child] = order++;
+					stack[++depth] = child;
+					next[depth] = childStart[child];
+				}
+				else
+				{
+					post[c] = postOrder++;
+					--depth;
+				}
+			}
+		}
+	}
+	
+	private static int root(int[] roots, int i)
+	{
+		while (roots[i] != i)
+		{
+			roots[i] = roots[roots[i]];
+			i = roots[i];
+		}
+		return i;
+	}
+	
+}
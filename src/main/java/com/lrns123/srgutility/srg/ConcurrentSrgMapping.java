@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.lrns123.srgutility.util.ParallelUtil;
+
+/**
+ * SrgMapping that can be filled and read by several threads at once.
+ * 
+ * The mapping tables are striped concurrent hash maps. Entries are inserted with putIfAbsent, so the first output
+ * stored for an input stays unless the conflict policy picks the new one; the default policy keeps the first
+ * output, and records conflicts like the default policy of {@link SrgMapping}. Which output comes first is up to the scheduler when threads race on the same input.
+ * 
+ * Thread-safety contract:
+ * <ul>
+ * <li>The add methods, the lookups by input and iteration over the mapping tables may be used from any thread,
+ * without external locking. Iterators are weakly consistent and never throw ConcurrentModificationException.</li>
+ * <li>Adding an entry happens-before every lookup or iteration that observes it, so a reader that sees an entry
+ * also sees everything the writing thread did before adding it.</li>
+ * <li>Everything else (lookups by output, the symbol and method key indexes, fingerprints, writing, and the
+ * operations that rebuild the mapping such as transform or reverse) expects that no add runs at the same time. It
+ * reflects every add that happens-before the call, for instance through Thread.join, Future.get or
+ * ExecutorService.awaitTermination on the writing threads.</li>
+ * </ul>
+ * 
+ * Parallel loaders write into this mapping directly instead of merging partial mappings.
+ */
+public class ConcurrentSrgMapping extends SrgMapping
+{
+	public ConcurrentSrgMapping()
+	{
+		this(16, 16, 16);
+		setConflictPolicy(new ConflictRecorder(ConflictPolicy.KEEP_FIRST, false, DEFAULT_CONFLICT_LIMIT));
+	}
+	
+	/**
+	 * Creates a concurrent copy of a mapping. The copy uses the conflict policy of the other mapping, but records its
+	 * own conflicts unless the other mapping's recorder is shared.
+	 * @param other The mapping to copy
+	 */
+	public ConcurrentSrgMapping(SrgMapping other)
+	{
+		this(other.classTable().size(), other.fieldTable().size(), other.methodTable().size());
+		setConflictPolicy(other.derivedConflictPolicy());
+		
+		classTable().putAll(other.classTable());
+		fieldTable().putAll(other.fieldTable());
+		methodTable().putAll(other.methodTable());
+	}
+	
+	private ConcurrentSrgMapping(int classMappings, int fieldMappings, int methodMappings)
+	{
+		super(ConcurrentSrgMapping.<SrgClass>createTable(classMappings), ConcurrentSrgMapping.<SrgField>createTable(fieldMappings), ConcurrentSrgMapping.<SrgMethod>createTable(methodMappings));
+	}
+	
+	private static <K> ConcurrentMap<K, K> createTable(int capacity)
+	{
+		return new ConcurrentHashMap<K, K>(Math.max(16, capacity), 0.75f, ParallelUtil.getParallelism());
+	}
+	
+	@Override
+	protected SrgMapping createEmpty(int classMappings, int fieldMappings, int methodMappings)
+	{
+		return new ConcurrentSrgMapping(classMappings, fieldMappings, methodMappings);
+	}
+	
+	/**
+	 * Makes a copy of this mapping. Unlike {@link SrgMapping#clone()}, the tables are copied right away, as they
+	 * cannot be shared safely while other threads are adding to them.
+	 */
+	@Override
+	public SrgMapping clone()
+	{
+		return new ConcurrentSrgMapping(this);
+	}
+	
+	@Override
+	public void addClassMapping(SrgClass input, SrgClass output)
+	{
+		add(classTable(), input, output);
+	}
+	
+	@Override
+	public void addFieldMapping(SrgField input, SrgField output)
+	{
+		add(fieldTable(), input, output);
+	}
+	
+	@Override
+	public void addMethodMapping(SrgMethod input, SrgMethod output)
+	{
+		add(methodTable(), input, output);
+	}
+	
+	private <K> void add(Map<K, K> table, K input, K output)
+	{
+		ConcurrentMap<K, K> map = (ConcurrentMap<K, K>) table;
+		boolean changed = false;
+		
+		try
+		{
+			K previous = map.putIfAbsent(input, output);
+			changed = previous == null;
+			while (previous != null && !previous.equals(output))
+			{
+				if (getConflictPolicy().resolve(input, previous, output) != output)
+					break;
+				
+				if (map.replace(input, previous, output))
+				{
+					changed = true;
+					break;
+				}
+				
+				// Another thread changed the entry in the meantime, resolve against its output instead
+				previous = map.putIfAbsent(input, output);
+				changed = previous == null;
+			}
+		}
+		finally
+		{
+			// Only an insert that changed the table invalidates derived data
+			if (changed)
+				invalidate();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+/**
+ * Decides what happens when a mapping is added for an input that is already mapped to a different output.
+ * 
+ * Policies may be called from several threads at once, as mappings are loaded and transformed in parallel.
+ */
+public interface ConflictPolicy
+{
+	/**
+	 * Keeps the existing output.
+	 */
+	public static final ConflictPolicy KEEP_FIRST = new ConflictPolicy()
+	{
+		@Override
+		public <K> K resolve(K input, K existing, K output)
+		{
+			return existing;
+		}
+	};
+	
+	/**
+	 * Replaces the existing output.
+	 */
+	public static final ConflictPolicy KEEP_LAST = new ConflictPolicy()
+	{
+		@Override
+		public <K> K resolve(K input, K existing, K output)
+		{
+			return output;
+		}
+	};
+	
+	/**
+	 * Rejects the new mapping with an IllegalArgumentException, leaving the existing output in place.
+	 */
+	public static final ConflictPolicy ERROR = new ConflictPolicy()
+	{
+		@Override
+		public <K> K resolve(K input, K existing, K output)
+		{
+			throw new IllegalArgumentException("Conflicting mapping for " + input + ": " + existing + " and " + output);
+		}
+	};
+	
+	/**
+	 * Resolves a conflict.
+	 * 
+	 * @param input The input being mapped.
+	 * @param existing The output it is currently mapped to.
+	 * @param output The new output.
+	 * @return The output to keep, either existing or output.
+	 */
+	public <K> K resolve(K input, K existing, K output);
+}
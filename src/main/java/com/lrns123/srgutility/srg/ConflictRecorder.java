@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import lombok.Cleanup;
+import lombok.Getter;
+
+/**
+ * Conflict policy that records every conflict, and leaves the decision to another policy.
+ * 
+ * Conflicts are kept in parallel arrays of input, existing output and rejected output, in the order they occurred.
+ * A recorder holds on to the conflicting symbols until it is cleared. A bounded recorder keeps the details of the
+ * first conflicts only, but still counts all of them; mappings use one by default, so duplicates are never dropped
+ * without a trace.
+ * 
+ * By default a recorder belongs to a single mapping: mappings derived from it (clones, pipeline results and copies)
+ * get a recorder of their own. A shared recorder is handed on to them instead, and collects their conflicts as well.
+ * Thread-safe.
+ */
+public class ConflictRecorder implements ConflictPolicy
+{
+	/**
+	 * The policy that decides which output is kept.
+	 */
+	@Getter private final ConflictPolicy policy;
+	
+	/**
+	 * Whether mappings derived from the mapping using this recorder record into it as well.
+	 */
+	@Getter private final boolean shared;
+	
+	/**
+	 * The number of conflicts of which the details are kept.
+	 */
+	@Getter private final int limit;
+	
+	/**
+	 * The number of conflicts since the recorder was created or cleared, including those past the limit.
+	 */
+	private int count = 0;
+	
+	private Object[] inputs = new Object[0];
+	private Object[] kept = new Object[0];
+	private Object[] rejected = new Object[0];
+	private int size = 0;
+	
+	/**
+	 * Records conflicts and keeps the last output.
+	 */
+	public ConflictRecorder()
+	{
+		this(ConflictPolicy.KEEP_LAST);
+	}
+	
+	public ConflictRecorder(ConflictPolicy policy)
+	{
+		this(policy, false);
+	}
+	
+	/**
+	 * @param policy The policy that decides which output is kept.
+	 * @param shared Whether mappings derived from the mapping using this recorder record into it as well.
+	 */
+	public ConflictRecorder(ConflictPolicy policy, boolean shared)
+	{
+		this(policy, shared, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * @param policy The policy that decides which output is kept.
+	 * @param shared Whether mappings derived from the mapping using this recorder record into it as well.
+	 * @param limit The number of conflicts of which the details are kept.
+	 */
+	public ConflictRecorder(ConflictPolicy policy, boolean shared, int limit)
+	{
+		if (limit < 0)
+			throw new IllegalArgumentException("Limit cannot be negative");
+		
+		this.policy = policy;
+		this.shared = shared;
+		this.limit = limit;
+	}
+
+	@Override
+	public <K> K resolve(K input, K existing, K output)
+	{
+		K result = policy.resolve(input, existing, output);
+		record(input, result, result == existing ? output : existing);
+		return result;
+	}
+	
+	private synchronized void record(Object input, Object keptOutput, Object rejectedOutput)
+	{
+		++count;
+		if (size == limit)
+			return;
+		
+		if (size == inputs.length)
+		{
+			int capacity = (int) Math.min(limit, Math.max(16, size * 2L));
+			inputs = Arrays.copyOf(inputs, capacity);
+			kept = Arrays.copyOf(kept, capacity);
+			rejected = Arrays.copyOf(rejected, capacity);
+		}
+		
+		inputs[size] = input;
+		kept[size] = keptOutput;
+		rejected[size] = rejectedOutput;
+		++size;
+	}
+	
+	/**
+	 * Returns the number of recorded conflicts, at most the limit.
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Returns the number of conflicts that occurred, including those that were not recorded due to the limit.
+	 */
+	public synchronized int getCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * Returns the input (SrgClass, SrgField or SrgMethod) of conflict idx.
+	 */
+	public synchronized Object getInput(int idx)
+	{
+		checkIndex(idx);
+		return inputs[idx];
+	}
+	
+	/**
+	 * Returns the output that was kept for conflict idx.
+	 */
+	public synchronized Object getKept(int idx)
+	{
+		checkIndex(idx);
+		return kept[idx];
+	}
+	
+	/**
+	 * Returns the output that was dropped for conflict idx.
+	 */
+	public synchronized Object getRejected(int idx)
+	{
+		checkIndex(idx);
+		return rejected[idx];
+	}
+	
+	public synchronized void clear()
+	{
+		inputs = new Object[0];
+		kept = new Object[0];
+		rejected = new Object[0];
+		size = 0;
+		count = 0;
+	}
+	
+	/**
+	 * Writes all recorded conflicts, one per line: type, input, kept output, rejected output. If conflicts were left
+	 * out due to the limit, a final comment line says how many.
+	 * 
+	 * @param outFile The file to write to.
+	 * @throws IOException
+	 */
+	public synchronized void write(File outFile) throws IOException
+	{
+		if (outFile.getParentFile() != null && !outFile.getParentFile().exists())
+		{
+			outFile.getParentFile().mkdirs();
+		}
+		
+		@Cleanup PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8));
+		
+		for (int i = 0; i != size; ++i)
+		{
+			writer.print(inputs[i] instanceof SrgMethod ? "MD: " : inputs[i] instanceof SrgField ? "FD: " : "CL: ");
+			writer.print(inputs[i]);
+			writer.print(' ');
+			writer.print(kept[i]);
+			writer.print(' ');
+			writer.print(rejected[i]);
+			writer.println();
+		}
+		
+		if (count > size)
+			writer.println("# " + (count - size) + " more conflicts not recorded");
+	}
+	
+	private void checkIndex(int idx)
+	{
+		if (idx < 0 || idx >= size)
+			throw new IndexOutOfBoundsException("Conflict " + idx + " of " + size);
+	}
+}
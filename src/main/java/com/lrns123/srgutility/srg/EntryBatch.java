@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+import com.lrns123.srgutility.util.ParallelUtil;
+
+/**
+ * Snapshot of a mapping table's entries, processed by an {@link Operation} in parallel.
+ * 
+ * Entries keep the table's iteration order, so adding the processed entries to a new table in index order
+ * gives the same result (including duplicate reports) as processing the table sequentially.
+ */
+final class EntryBatch<K>
+{
+	/**
+	 * Tables smaller than this, and slices of at most this size, are processed on a single thread.
+	 */
+	private static final int THRESHOLD = 4096;
+	
+	/**
+	 * Operation applied to every entry of a batch. Must be safe for concurrent use.
+	 */
+	abstract static class Operation<K>
+	{
+		/**
+		 * Processes entry idx of the batch, replacing or dropping it.
+		 */
+		abstract void apply(EntryBatch<K> batch, int idx);
+	}
+	
+	/**
+	 * Input of entry i at 2i, output at 2i + 1.
+	 */
+	private final Object[] rows;
+	
+	private EntryBatch(Map<K, K> table)
+	{
+		rows = SymbolHashTable.rowsOf(table);
+	}
+	
+	/**
+	 * Snapshots a table and applies the operation to all its entries, in parallel for large tables.
+	 */
+	static <K> EntryBatch<K> process(Map<K, K> table, Operation<K> operation)
+	{
+		EntryBatch<K> batch = new EntryBatch<K>(table);
+		
+		if (batch.size() <= THRESHOLD || ParallelUtil.getParallelism() == 1)
+		{
+			batch.apply(operation, 0, batch.size());
+		}
+		else
+		{
+			ParallelUtil.getPool().invoke(new SliceTask<K>(batch, operation, 0, batch.size()));
+		}
+		
+		return batch;
+	}
+	
+	int size()
+	{
+		return rows.length >> 1;
+	}
+	
+	boolean isDropped(int idx)
+	{
+		return rows[idx << 1] == null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	K input(int idx)
+	{
+		return (K) rows[idx << 1];
+	}
+	
+	@SuppressWarnings("unchecked")
+	K output(int idx)
+	{
+		return (K) rows[(idx << 1) + 1];
+	}
+	
+	void set(int idx, K input, K output)
+	{
+		rows[idx << 1] = input;
+		rows[(idx << 1) + 1] = output;
+	}
+	
+	void drop(int idx)
+	{
+		rows[idx << 1] = null;
+		rows[(idx << 1) + 1] = null;
+	}
+	
+	private void apply(Operation<K> operation, int from, int to)
+	{
+		for (int idx = from; idx != to; ++idx)
+		{
+			operation.apply(this, idx);
+		}
+	}
+	
+	private static final class SliceTask<K> extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final EntryBatch<K> batch;
+		private final Operation<K> operation;
+		private final int from;
+		private final int to;
+		
+		SliceTask(EntryBatch<K> batch, Operation<K> operation, int from, int to)
+		{
+			this.batch = batch;
+			this.operation = operation;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= THRESHOLD)
+			{
+				batch.apply(operation, from, to);
+				return;
+			}
+			
+			int mid = (from + to) >>> 1;
+			invokeAll(new SliceTask<K>(batch, operation, from, mid), new SliceTask<K>(batch, operation, mid, to));
+		}
+	}
+}
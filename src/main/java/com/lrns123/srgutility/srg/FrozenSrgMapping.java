@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.File;
+import java.util.List;
+
+import com.lrns123.srgutility.transformer.MappingTransformer;
+
+/**
+ * Read-only snapshot of an SrgMapping.
+ * 
+ * Every table is a {@link FrozenTable}, which finds an input through a minimal perfect hash instead of probing, and
+ * takes about half the memory of a HashMap. The snapshot never changes, so any number of threads may read it
+ * without synchronization.
+ * 
+ * The operations that modify a mapping throw UnsupportedOperationException. Use {@link #clone()} to get a mutable
+ * copy, which shares the frozen tables until it is modified.
+ */
+public class FrozenSrgMapping extends SrgMapping
+{
+	/**
+	 * Creates a frozen copy of a mapping.
+	 * @param other The mapping to copy
+	 */
+	public FrozenSrgMapping(SrgMapping other)
+	{
+		super(new FrozenTable<SrgClass>(other.classTable()), new FrozenTable<SrgField>(other.fieldTable()), new FrozenTable<SrgMethod>(other.methodTable()));
+		setConflictPolicy(other.derivedConflictPolicy());
+	}
+	
+	/**
+	 * Intermediate results, and clones, use the default storage.
+	 */
+	@Override
+	protected SrgMapping createEmpty(int classMappings, int fieldMappings, int methodMappings)
+	{
+		return new SrgMapping(classMappings, fieldMappings, methodMappings);
+	}
+	
+	@Override
+	public void addClassMapping(SrgClass input, SrgClass output)
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public void addFieldMapping(SrgField input, SrgField output)
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public void addMethodMapping(SrgMethod input, SrgMethod output)
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public SrgMapping reverse()
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public SrgMapping transform(MappingTransformer inputTransformer, MappingTransformer outputTransformer)
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public SrgMapping compose(SrgMapping next, SrgVisitor dangling)
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public SrgMapping patch(SrgMappingDelta delta)
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public SrgMapping identity()
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public SrgMapping filter(SrgMapping filter)
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public void loadMappings(List<File> srgFiles)
+	{
+		throw readOnly();
+	}
+	
+	@Override
+	public void loadBinary(File binFile)
+	{
+		throw readOnly();
+	}
+	
+	private static UnsupportedOperationException readOnly()
+	{
+		return new UnsupportedOperationException("Frozen mappings cannot be modified, clone them first");
+	}
+}
@@ -0,0 +1,450 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable mapping table built on a minimal perfect hash.
+ * 
+ * The inputs are hashed into buckets of about two. Every bucket stores a displacement that sends each of its inputs
+ * to a distinct slot of a flat array that holds inputs and outputs side by side, so a lookup takes two hashes, three
+ * array reads (mostly two cache lines) and one comparison, and never probes. Short obfuscated names often share a hash code, and such inputs cannot be told apart
+ * by hashCode alone, so buckets holding them are placed by a hash of the string form of the inputs instead. Inputs
+ * that still cannot be placed, which is rare, are kept in small arrays sorted by hash code and searched after a miss.
+ * 
+ * Uses two references and a byte per entry, against about forty bytes per HashMap entry.
+ */
+final class FrozenTable<K> extends AbstractMap<K, K>
+{
+	/**
+	 * Average number of inputs per bucket.
+	 */
+	private static final int BUCKET_SIZE = 2;
+	
+	/**
+	 * Set in the displacement of buckets that are placed by string hash.
+	 */
+	private static final char STRING_HASHED = 0x8000;
+	
+	/**
+	 * Displacements are stored in the low bits of a char, so the search for a bucket gives up after this many tries.
+	 */
+	private static final int MAX_DISPLACEMENT = STRING_HASHED;
+	
+	private static final int FNV_OFFSET = 0x811c9dc5;
+	private static final int FNV_PRIME = 0x01000193;
+	
+	/**
+	 * Input and output of slot i at 2i and 2i + 1.
+	 */
+	private final Object[] table;
+	private final int slots;
+	private final char[] displacements;
+	
+	private final int[] overflowHashes;
+	private final Object[] overflowKeys;
+	private final Object[] overflowValues;
+	
+	private final int size;
+	
+	FrozenTable(Map<K, K> source)
+	{
+		int count = source.size();
+		Object[] sourceKeys = new Object[count];
+		Object[] sourceValues = new Object[count];
+		int[] hashes = new int[count];
+		
+		int idx = 0;
+		for (Entry<K, K> entry : source.entrySet())
+		{
+			sourceKeys[idx] = entry.getKey();
+			sourceValues[idx] = entry.getValue();
+			hashes[idx] = entry.getKey().hashCode();
+			++idx;
+		}
+		
+		this.size = count;
+		this.slots = count;
+		this.table = new Object[count * 2];
+		this.displacements = new char[Math.max(1, (count + BUCKET_SIZE - 1) / BUCKET_SIZE)];
+		
+		long[] overflow = place(sourceKeys, sourceValues, hashes);
+		Arrays.sort(overflow);
+		
+		this.overflowHashes = new int[overflow.length];
+		this.overflowKeys = new Object[overflow.length];
+		this.overflowValues = new Object[overflow.length];
+		for (int i = 0; i != overflow.length; ++i)
+		{
+			int sourceIdx = (int) overflow[i];
+			overflowHashes[i] = (int) (overflow[i] >> 32);
+			overflowKeys[i] = sourceKeys[sourceIdx];
+			overflowValues[i] = sourceValues[sourceIdx];
+		}
+		
+		assert matches(source) : "Frozen table does not match its source";
+	}
+	
+	/**
+	 * Searches a displacement for every bucket, largest buckets first, and fills the slots.
+	 * 
+	 * @return The entries of buckets that could not be placed, as hash code and source index packed in a long.
+	 */
+	private long[] place(Object[] sourceKeys, Object[] sourceValues, int[] hashes)
+	{
+		int count = hashes.length;
+		int buckets = displacements.length;
+		
+		// Group the entries by bucket
+		int[] bucketStart = new int[buckets + 1];
+		for (int i = 0; i != count; ++i)
+		{
+			++bucketStart[bucket(hashes[i], buckets) + 1];
+		}
+		
+		int maxBucketSize = 0;
+		for (int b = 0; b != buckets; ++b)
+		{
+			maxBucketSize = Math.max(maxBucketSize, bucketStart[b + 1]);
+			bucketStart[b + 1] += bucketStart[b];
+		}
+		
+		int[] members = new int[count];
+		int[] cursor = Arrays.copyOf(bucketStart, buckets);
+		for (int i = 0; i != count; ++i)
+		{
+			members[cursor[bucket(hashes[i], buckets)]++] = i;
+		}
+		
+		// Order the buckets by descending size
+		int[] sizeStart = new int[maxBucketSize + 2];
+		for (int b = 0; b != buckets; ++b)
+		{
+			++sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b]) + 1];
+		}
+		for (int s = 0; s <= maxBucketSize; ++s)
+		{
+			sizeStart[s + 1] += sizeStart[s];
+		}
+		int[] bucketOrder = new int[buckets];
+		for (int b = 0; b != buckets; ++b)
+		{
+			bucketOrder[sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b])]++] = b;
+		}
+		
+		long[] used = new long[(count + 63) >>> 6];
+		int[] memberHashes = new int[maxBucketSize];
+		int[] slots = new int[maxBucketSize];
+		long[] overflow = new long[0];
+		
+		for (int b : bucketOrder)
+		{
+			int start = bucketStart[b];
+			int bucketSize = bucketStart[b + 1] - start;
+			if (bucketSize == 0)
+				break;
+			
+			boolean stringHashed = false;
+			for (int i = 0; i != bucketSize; ++i)
+			{
+				memberHashes[i] = hashes[members[start + i]];
+				for (int j = 0; j != i; ++j)
+				{
+					if (memberHashes[j] == memberHashes[i])
+						stringHashed = true;
+				}
+			}
+			
+			if (stringHashed)
+			{
+				for (int i = 0; i != bucketSize; ++i)
+				{
+					memberHashes[i] = stringHash(sourceKeys[members[start + i]]);
+				}
+			}
+			
+			int displacement = findDisplacement(memberHashes, bucketSize, used, slots);
+			if (displacement < 0)
+			{
+				int overflowCount = overflow.length;
+				overflow = Arrays.copyOf(overflow, overflowCount + bucketSize);
+				for (int i = 0; i != bucketSize; ++i)
+				{
+					int sourceIdx = members[start + i];
+					overflow[overflowCount + i] = ((long) hashes[sourceIdx] << 32) | sourceIdx;
+				}
+				continue;
+			}
+			
+			displacements[b] = (char) (stringHashed ? displacement | STRING_HASHED : displacement);
+			for (int i = 0; i != bucketSize; ++i)
+			{
+				int slot = slots[i];
+				used[slot >>> 6] |= 1L << slot;
+				table[slot << 1] = sourceKeys[members[start + i]];
+				table[(slot << 1) + 1] = sourceValues[members[start + i]];
+			}
+		}
+		
+		return overflow;
+	}
+	
+	/**
+	 * Finds a displacement that sends all hashes of a bucket to distinct free slots, which are stored in slots.
+	 * 
+	 * @return The displacement, or -1 if there is none.
+	 */
+	private int findDisplacement(int[] memberHashes, int bucketSize, long[] used, int[] slots)
+	{
+		search:
+		for (int displacement = 0; displacement != MAX_DISPLACEMENT; ++displacement)
+		{
+			for (int i = 0; i != bucketSize; ++i)
+			{
+				int slot = slot(memberHashes[i], displacement, this.slots);
+				if ((used[slot >>> 6] & (1L << slot)) != 0)
+					continue search;
+				
+				for (int j = 0; j != i; ++j)
+				{
+					if (slots[j] == slot)
+						continue search;
+				}
+				slots[i] = slot;
+			}
+			return displacement;
+		}
+		return -1;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public K get(Object key)
+	{
+		if (key == null)
+			return null;
+		
+		int hash = key.hashCode();
+		if (slots != 0)
+		{
+			char displacement = displacements[bucket(hash, displacements.length)];
+			int slot = (displacement & STRING_HASHED) == 0
+				? slot(hash, displacement, slots)
+				: slot(stringHash(key), displacement & ~STRING_HASHED, slots);
+			
+			Object candidate = table[slot << 1];
+			if (candidate == key || (candidate != null && candidate.equals(key)))
+				return (K) table[(slot << 1) + 1];
+		}
+		
+		if (overflowHashes.length == 0)
+			return null;
+		
+		int idx = Arrays.binarySearch(overflowHashes, hash);
+		if (idx < 0)
+			return null;
+		
+		while (idx > 0 && overflowHashes[idx - 1] == hash)
+			--idx;
+		
+		for (; idx != overflowHashes.length && overflowHashes[idx] == hash; ++idx)
+		{
+			if (overflowKeys[idx] == key || overflowKeys[idx].equals(key))
+				return (K) overflowValues[idx];
+		}
+		return null;
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return get(key) != null;
+	}
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public Set<Entry<K, K>> entrySet()
+	{
+		return new AbstractSet<Entry<K, K>>()
+		{
+			@Override
+			public Iterator<Entry<K, K>> iterator()
+			{
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+	
+	/**
+	 * Iterates over the slots, skipping empty ones, and then over the overflow entries.
+	 */
+	private final class EntryIterator implements Iterator<Entry<K, K>>
+	{
+		private int idx = 0;
+		private int returned = 0;
+
+		@Override
+		public boolean hasNext()
+		{
+			return returned != size;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Entry<K, K> next()
+		{
+			if (returned == size)
+				throw new NoSuchElementException();
+			
+			++returned;
+			while (idx < slots && table[idx << 1] == null)
+				++idx;
+			
+			if (idx < slots)
+			{
+				Entry<K, K> entry = new SimpleImmutableEntry<K, K>((K) table[idx << 1], (K) table[(idx << 1) + 1]);
+				++idx;
+				return entry;
+			}
+			
+			int overflowIdx = idx++ - slots;
+			return new SimpleImmutableEntry<K, K>((K) overflowKeys[overflowIdx], (K) overflowValues[overflowIdx]);
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * FNV-1a hash of the string form of a key, used where hash codes collide. Symbols are hashed from the names they
+	 * already hold, so lookups do not build their string form.
+	 */
+	private static int stringHash(Object key)
+	{
+		if (key instanceof SrgClass)
+			return stringHash(FNV_OFFSET, ((SrgClass) key).getQualifiedName());
+		
+		if (key instanceof SrgField)
+			return stringHash(FNV_OFFSET, ((SrgField) key).getQualifiedName());
+		
+		if (key instanceof SrgMethod)
+		{
+			SrgMethod method = (SrgMethod) key;
+			int h = stringHash(FNV_OFFSET, method.getQualifiedName());
+			h = (h ^ ' ') * FNV_PRIME;
+			return stringHash(h, method.getMethodDescriptor());
+		}
+		
+		return stringHash(FNV_OFFSET, key.toString());
+	}
+	
+	private static int stringHash(int h, String str)
+	{
+		for (int i = 0; i != str.length(); ++i)
+		{
+			h ^= str.charAt(i);
+			h *= FNV_PRIME;
+		}
+		return h;
+	}
+	
+	/**
+	 * Checks that every entry of the source is found again, and that nothing else is.
+	 */
+	private boolean matches(Map<K, K> source)
+	{
+		if (source.size() != size)
+			return false;
+		
+		for (Entry<K, K> entry : source.entrySet())
+		{
+			if (!entry.getValue().equals(get(entry.getKey())))
+				return false;
+		}
+		
+		int count = 0;
+		for (Entry<K, K> entry : entrySet())
+		{
+			if (!entry.getValue().equals(source.get(entry.getKey())))
+				return false;
+			++count;
+		}
+		return count == size;
+	}
+	
+	private static int bucket(int hash, int buckets)
+	{
+		return reduce(mix(hash), buckets);
+	}
+	
+	private static int slot(int hash, int displacement, int slots)
+	{
+		return reduce(mix(hash ^ (displacement * 0x9e3779b9 + 0x7f4a7c15)), slots);
+	}
+	
+	/**
+	 * Murmur3 finalizer.
+	 */
+	private static int mix(int h)
+	{
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+	
+	/**
+	 * Maps a hash onto [0, n) without a division.
+	 */
+	private static int reduce(int h, int n)
+	{
+		return (int) (((h & 0xffffffffL) * n) >>> 32);
+	}
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Transitive closure over the parents of an inheritance map.
+ * 
+ * The ancestors and descendants of a class are computed on first request and memoized, together with those of every
+ * class passed on the way, so each chain is only walked once. Cycles in the inheritance map are tolerated: the
+ * classes of a cycle are resolved together (as a strongly connected component) and share their closure, and a class
+ * is never reported as its own ancestor or descendant.
+ */
+final class InheritanceIndex
+{
+	private final Map<SrgClass, List<SrgClass>> parents;
+	private final Map<SrgClass, List<SrgClass>> children = new HashMap<SrgClass, List<SrgClass>>();
+	
+	private final Map<SrgClass, List<SrgClass>> ancestors = new HashMap<SrgClass, List<SrgClass>>();
+	private final Map<SrgClass, List<SrgClass>> descendants = new HashMap<SrgClass, List<SrgClass>>();
+	
+	InheritanceIndex(Map<SrgClass, List<SrgClass>> parents)
+	{
+		this.parents = parents;
+		
+		for (Entry<SrgClass, List<SrgClass>> entry : parents.entrySet())
+		{
+			for (SrgClass parent : entry.getValue())
+			{
+				List<SrgClass> list = children.get(parent);
+				if (list == null)
+				{
+					list = new ArrayList<SrgClass>(1);
+					children.put(parent, list);
+				}
+				list.add(entry.getKey());
+			}
+		}
+	}
+	
+	/**
+	 * Returns all ancestors of a class, direct parents first, each once.
+	 */
+	List<SrgClass> getAncestors(SrgClass clazz)
+	{
+		return closure(clazz, parents, ancestors);
+	}
+	
+	/**
+	 * Returns all descendants of a class, direct children first, each once.
+	 */
+	List<SrgClass> getDescendants(SrgClass clazz)
+	{
+		return closure(clazz, children, descendants);
+	}
+	
+	private static List<SrgClass> closure(SrgClass clazz, Map<SrgClass, List<SrgClass>> edges, Map<SrgClass, List<SrgClass>> memo)
+	{
+		List<SrgClass> result = memo.get(clazz);
+		if (result == null)
+		{
+			new Walk(edges, memo).run(clazz);
+			result = memo.get(clazz);
+		}
+		return result;
+	}
+	
+	/**
+	 * Depth-first walk that finds the strongly connected components reachable from a class (Tarjan's algorithm,
+	 * without recursion) and memoizes their closures as they complete. Components complete after everything they
+	 * reach, so their closure is assembled from closures that are already known. Memoized classes are not entered.
+	 */
+	private static final class Walk
+	{
+		private final Map<SrgClass, List<SrgClass>> edges;
+		private final Map<SrgClass, List<SrgClass>> memo;
+		
+		private final Map<SrgClass, Integer> order = new HashMap<SrgClass, Integer>();
+		private final ArrayDeque<SrgClass> component = new ArrayDeque<SrgClass>();
+		private final Set<SrgClass> onComponent = new HashSet<SrgClass>();
+		private final ArrayDeque<Frame> frames = new ArrayDeque<Frame>();
+		
+		Walk(Map<SrgClass, List<SrgClass>> edges, Map<SrgClass, List<SrgClass>> memo)
+		{
+			this.edges = edges;
+			this.memo = memo;
+		}
+		
+		void run(SrgClass root)
+		{
+			enter(root);
+			
+			while (!frames.isEmpty())
+			{
+				Frame frame = frames.peek();
+				
+				if (frame.edge < frame.next.size())
+				{
+					SrgClass next = frame.next.get(frame.edge++);
+					if (memo.containsKey(next))
+						continue;
+					
+					Integer nextOrder = order.get(next);
+					if (nextOrder == null)
+						enter(next);
+					else if (onComponent.contains(next))
+						frame.low = Math.min(frame.low, nextOrder);
+					
+					continue;
+				}
+				
+				frames.pop();
+				if (!frames.isEmpty())
+					frames.peek().low = Math.min(frames.peek().low, frame.low);
+				
+				if (frame.low == frame.order)
+				{
+					List<SrgClass> members = new ArrayList<SrgClass>();
+					SrgClass member;
+					do
+					{
+						member = component.pop();
+						onComponent.remove(member);
+						members.add(member);
+					}
+					while (member != frame.clazz);
+					
+					complete(members);
+				}
+			}
+		}
+		
+		private void enter(SrgClass clazz)
+		{
+			int idx = order.size();
+			order.put(clazz, idx);
+			component.push(clazz);
+			onComponent.add(clazz);
+			
+			List<SrgClass> next = edges.get(clazz);
+			frames.push(new Frame(clazz, idx, next != null ? next : Collections.<SrgClass>emptyList()));
+		}
+		
+		/**
+		 * Memoizes the closure of every member of a completed component.
+		 */
+		private void complete(List<SrgClass> members)
+		{
+			Set<SrgClass> memberSet = new HashSet<SrgClass>(members);
+			
+			// Everything the component reaches outside itself: its direct targets, then their closures
+			List<SrgClass> outside = new ArrayList<SrgClass>();
+			Set<SrgClass> seen = new HashSet<SrgClass>();
+			for (SrgClass member : members)
+			{
+				for (SrgClass next : edges(member))
+				{
+					if (!memberSet.contains(next) && seen.add(next))
+						outside.add(next);
+				}
+			}
+			
+			for (int i = 0, direct = outside.size(); i != direct; ++i)
+			{
+				for (SrgClass next : memo.get(outside.get(i)))
+				{
+					if (seen.add(next))
+						outside.add(next);
+				}
+			}
+			
+			if (members.size() == 1)
+			{
+				// The direct targets of a lone class come first already
+				memo.put(members.get(0), outside.isEmpty() ? Collections.<SrgClass>emptyList() : Collections.unmodifiableList(outside));
+				return;
+			}
+			
+			for (SrgClass member : members)
+			{
+				List<SrgClass> reached = new ArrayList<SrgClass>(members.size() - 1 + outside.size());
+				Set<SrgClass> added = new HashSet<SrgClass>();
+				added.add(member);
+				
+				for (SrgClass next : edges(member))
+				{
+					if (added.add(next))
+						reached.add(next);
+				}
+				for (SrgClass next : members)
+				{
+					if (added.add(next))
+						reached.add(next);
+				}
+				for (SrgClass next : outside)
+				{
+					if (added.add(next))
+						reached.add(next);
+				}
+				
+				memo.put(member, Collections.unmodifiableList(reached));
+			}
+		}
+		
+		private List<SrgClass> edges(SrgClass clazz)
+		{
+			List<SrgClass> next = edges.get(clazz);
+			return next != null ? next : Collections.<SrgClass>emptyList();
+		}
+	}
+	
+	private static final class Frame
+	{
+		final SrgClass clazz;
+		final int order;
+		final List<SrgClass> next;
+		int edge = 0;
+		int low;
+		
+		Frame(SrgClass clazz, int order, List<SrgClass> next)
+		{
+			this.clazz = clazz;
+			this.order = order;
+			this.low = order;
+			this.next = next;
+		}
+	}
+}
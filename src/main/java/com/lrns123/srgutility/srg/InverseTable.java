@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverse (output -> input) view of a mapping table, kept up to date as mappings are added.
+ * 
+ * When several inputs map to the same output, the first one added is kept as the input, and all of them are
+ * recorded as a collision.
+ */
+final class InverseTable<K>
+{
+	/**
+	 * Output -> first input.
+	 */
+	private final Map<K, K> inputs;
+	
+	/**
+	 * Output -> all inputs, in the order they were added. Only holds outputs with more than one input.
+	 */
+	private final Map<K, List<K>> collisions = new HashMap<K, List<K>>();
+	
+	/**
+	 * Wraps a collision-free output -> input table.
+	 */
+	InverseTable(Map<K, K> inputs)
+	{
+		this.inputs = inputs;
+	}
+	
+	/**
+	 * Builds the inverse of a table into the (empty) storage table.
+	 */
+	@SuppressWarnings("unchecked")
+	InverseTable(Map<K, K> table, Map<K, K> storage)
+	{
+		this.inputs = storage;
+		
+		Object[] rows = SymbolHashTable.rowsOf(table);
+		for (int i = 0; i != rows.length; i += 2)
+		{
+			add((K) rows[i], (K) rows[i + 1]);
+		}
+	}
+	
+	/**
+	 * Updates the inverse after the input was mapped to output, replacing its previous output (if any).
+	 */
+	void update(K input, K previous, K output)
+	{
+		if (previous != null)
+		{
+			if (previous.equals(output))
+				return;
+			
+			remove(input, previous);
+		}
+		
+		add(input, output);
+	}
+	
+	K get(K output)
+	{
+		return inputs.get(output);
+	}
+	
+	Map<K, K> getInputs()
+	{
+		return inputs;
+	}
+	
+	Map<K, List<K>> getCollisions()
+	{
+		return Collections.unmodifiableMap(collisions);
+	}
+	
+	boolean hasCollisions()
+	{
+		return !collisions.isEmpty();
+	}
+	
+	private void add(K input, K output)
+	{
+		K existing = inputs.get(output);
+		if (existing == null)
+		{
+			inputs.put(output, input);
+			return;
+		}
+		
+		List<K> all = collisions.get(output);
+		if (all == null)
+		{
+			all = new ArrayList<K>(2);
+			all.add(existing);
+			collisions.put(output, all);
+		}
+		all.add(input);
+	}
+	
+	private void remove(K input, K output)
+	{
+		List<K> all = collisions.get(output);
+		if (all == null)
+		{
+			inputs.remove(output);
+			return;
+		}
+		
+		all.remove(input);
+		inputs.put(output, all.get(0));
+		
+		if (all.size() == 1)
+			collisions.remove(output);
+	}
+}
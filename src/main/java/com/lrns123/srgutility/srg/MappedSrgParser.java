@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import lombok.Cleanup;
+
+/**
+ * Srg parser that works directly on the bytes of a file, read into a buffer or memory-mapped when it is large.
+ * 
+ * Lines and tokens are located by scanning bytes, and names are only decoded the first time they are seen.
+ */
+final class MappedSrgParser
+{
+	private static final int MAX_TOKENS = 4;
+	
+	/**
+	 * Files up to this size are read into a heap buffer rather than memory-mapped. A mapping is only released once its
+	 * buffer is garbage collected, and until then some platforms (e.g. Windows) refuse to overwrite or delete the file.
+	 */
+	private static final long MAP_THRESHOLD = 1L << 26;
+	
+	private final ByteBuffer buffer;
+	private final ByteStringTable names;
+	private final boolean shared;
+	
+	private final int[] tokenStart = new int[MAX_TOKENS];
+	private final int[] tokenEnd = new int[MAX_TOKENS];
+	
+	MappedSrgParser(ByteBuffer buffer)
+	{
+		this(buffer, Integer.MAX_VALUE, true);
+	}
+	
+	/**
+	 * @param buffer The srg data
+	 * @param maxNames Maximum number of distinct names to cache while parsing
+	 * @param shared Whether symbols are interned through the global {@link SrgSymbolTable}. Unshared symbols only
+	 *        share names through the parser's own cache, and are dropped with it.
+	 */
+	MappedSrgParser(ByteBuffer buffer, int maxNames, boolean shared)
+	{
+		this.buffer = buffer;
+		this.names = new ByteStringTable(maxNames);
+		this.shared = shared;
+	}
+	
+	/**
+	 * Opens an srg file for parsing. Files larger than {@link #MAP_THRESHOLD} are memory-mapped, smaller files are read
+	 * into the heap so the file is not kept open.
+	 */
+	static ByteBuffer open(File srgFile) throws IOException
+	{
+		@Cleanup RandomAccessFile file = new RandomAccessFile(srgFile, "r");
+		FileChannel channel = file.getChannel();
+		
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Srg file " + srgFile + " is too large");
+		
+		if (size > MAP_THRESHOLD)
+		{
+			// The mapping stays valid after the channel is closed.
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer) == -1)
+				break;
+		}
+		
+		buffer.flip();
+		return buffer;
+	}
+	
+	/**
+	 * Parses all lines in [start, end) of the buffer, passing their entries to the visitor.
+	 */
+	void parse(int start, int end, SrgVisitor visitor)
+	{
+		int pos = start;
+		
+		while (pos < end)
+		{
+			int lineEnd = pos;
+			while (lineEnd < end && buffer.get(lineEnd) != '\n')
+				++lineEnd;
+			
+			int contentEnd = lineEnd;
+			if (contentEnd > pos && buffer.get(contentEnd - 1) == '\r')
+				--contentEnd;
+			
+			parseLine(pos, contentEnd, visitor);
+			pos = lineEnd + 1;
+		}
+	}
+	
+	private void parseLine(int start, int end, SrgVisitor visitor)
+	{
+		if (end - start < 3 || buffer.get(start + 2) != ':')
+			return;
+		
+		byte b0 = buffer.get(start);
+		byte b1 = buffer.get(start + 1);
+		
+		if (b0 == 'C' && b1 == 'L')
+		{
+			if (tokenize(start + 3, end) < 2)
+			{
+				invalidEntry("CL", start, end);
+				return;
+			}
+			
+			SrgClass input = parseClass(tokenStart[0], tokenEnd[0]);
+			SrgClass output = parseClass(tokenStart[1], tokenEnd[1]);
+			
+			visitor.visitClass(input, output);
+		}
+		else if (b0 == 'F' && b1 == 'D')
+		{
+			if (tokenize(start + 3, end) < 2)
+			{
+				invalidEntry("FD", start, end);
+				return;
+			}
+			
+			SrgField input = parseField(tokenStart[0], tokenEnd[0]);
+			SrgField output = parseField(tokenStart[1], tokenEnd[1]);
+			
+			visitor.visitField(input, output);
+		}
+		else if (b0 == 'M' && b1 == 'D')
+		{
+			if (tokenize(start + 3, end) < 4)
+			{
+				invalidEntry("MD", start, end);
+				return;
+			}
+			
+			SrgMethod input = parseMethod(tokenStart[0], tokenEnd[0], tokenStart[1], tokenEnd[1]);
+			SrgMethod output = parseMethod(tokenStart[2], tokenEnd[2], tokenStart[3], tokenEnd[3]);
+			
+			visitor.visitMethod(input, output);
+		}
+		else if (b0 == 'P' && b1 == 'K')
+		{
+			if (tokenize(start + 3, end) < 2)
+			{
+				invalidEntry("PK", start, end);
+				return;
+			}
+			
+			visitor.visitPackage(names.get(buffer, tokenStart[0], tokenEnd[0]), names.get(buffer, tokenStart[1], tokenEnd[1]));
+		}
+	}
+	
+	/**
+	 * Locates the space-separated tokens in [start, end).
+	 * @return The number of tokens found (at most MAX_TOKENS)
+	 */
+	private int tokenize(int start, int end)
+	{
+		int count = 0;
+		int pos = start;
+		
+		while (count != MAX_TOKENS)
+		{
+			while (pos < end && isSpace(buffer.get(pos)))
+				++pos;
+			
+			if (pos == end)
+				break;
+			
+			tokenStart[count] = pos;
+			while (pos < end && !isSpace(buffer.get(pos)))
+				++pos;
+			
+			tokenEnd[count++] = pos;
+		}
+		
+		return count;
+	}
+	
+	private SrgClass parseClass(int start, int end)
+	{
+		if (shared)
+			return SrgClass.valueOf(names.get(buffer, start, end));
+		
+		int classIdx = lastSlash(start, end);
+		
+		String packageName = classIdx == -1 ? "" : names.get(buffer, start, classIdx);
+		String className = names.get(buffer, classIdx == -1 ? start : classIdx + 1, end);
+		
+		return new SrgClass(packageName, className, names.get(buffer, start, end));
+	}
+	
+	private SrgField parseField(int start, int end)
+	{
+		int nameIdx = lastSlash(start, end);
+		if (nameIdx == -1)
+			throw new IllegalArgumentException("Malformed FQN");
+		
+		int classIdx = lastSlash(start, nameIdx);
+		
+		String packageName = classIdx == -1 ? "" : fragment(start, classIdx);
+		String className = fragment(classIdx == -1 ? start : classIdx + 1, nameIdx);
+		String fieldName = fragment(nameIdx + 1, end);
+		
+		return new SrgField(packageName, className, fieldName, names.get(buffer, start, end));
+	}
+	
+	private SrgMethod parseMethod(int start, int end, int descStart, int descEnd)
+	{
+		int nameIdx = lastSlash(start, end);
+		if (nameIdx == -1)
+			throw new IllegalArgumentException("Malformed FQN");
+		
+		int classIdx = lastSlash(start, nameIdx);
+		
+		String packageName = classIdx == -1 ? "" : fragment(start, classIdx);
+		String className = fragment(classIdx == -1 ? start : classIdx + 1, nameIdx);
+		String methodName = fragment(nameIdx + 1, end);
+		
+		return new SrgMethod(packageName, className, methodName, names.get(buffer, start, end), names.get(buffer, descStart, descEnd));
+	}
+	
+	/**
+	 * Returns a name fragment of a member, interned when symbols are shared.
+	 */
+	private String fragment(int start, int end)
+	{
+		String name = names.get(buffer, start, end);
+		return shared ? SrgSymbolTable.intern(name) : name;
+	}
+	
+	private int lastSlash(int start, int end)
+	{
+		for (int i = end - 1; i >= start; --i)
+		{
+			if (buffer.get(i) == '/')
+				return i;
+		}
+		return -1;
+	}
+	
+	private void invalidEntry(String type, int start, int end)
+	{
+		byte[] line = new byte[end - start];
+		for (int i = start; i != end; ++i)
+		{
+			line[i - start] = buffer.get(i);
+		}
+		
+		System.out.println("Invalid " + type + " entry found in srg: " + new String(line, StandardCharsets.UTF_8));
+	}
+	
+	private static boolean isSpace(byte b)
+	{
+		return b == ' ' || b == '\t';
+	}
+}
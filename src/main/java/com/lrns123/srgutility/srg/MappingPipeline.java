@@ -0,0 +1,408 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lrns123.srgutility.transformer.IdentityTransformer;
+import com.lrns123.srgutility.transformer.MappingTransformer;
+
+/**
+ * Lazily applied chain of mapping operations.
+ * 
+ * Operations are recorded instead of executed, and are fused into a single pass per table when the result is
+ * materialized, so no intermediate tables are built. Consecutive transforms are composed, and filters run before
+ * any preceding operations that leave the inputs untouched.
+ * 
+ * The source mapping is never modified. Like the eager operations, transformers and filters must not change
+ * while the pipeline is in use.
+ */
+public class MappingPipeline
+{
+	private final SrgMapping source;
+	private final List<Stage> stages = new ArrayList<Stage>();
+	
+	public MappingPipeline(SrgMapping source)
+	{
+		this.source = source;
+	}
+	
+	/**
+	 * Records a transform, see {@link SrgMapping#transform(MappingTransformer, MappingTransformer)}.
+	 * 
+	 * @return The current instance of MappingPipeline.
+	 */
+	public MappingPipeline transform(MappingTransformer inputTransformer, MappingTransformer outputTransformer)
+	{
+		if (isIdentity(inputTransformer) && isIdentity(outputTransformer))
+			return this;
+		
+		// A stage that changes inputs is not extended, so its duplicate inputs can be resolved before the next transform
+		Stage last = stages.isEmpty() ? null : stages.get(stages.size() - 1);
+		TransformStage stage = last instanceof TransformStage && last.keepsInputs() ? (TransformStage) last : null;
+		
+		if (stage == null)
+		{
+			stage = new TransformStage();
+			stages.add(stage);
+		}
+		
+		if (!isIdentity(inputTransformer))
+			stage.inputTransformers.add(inputTransformer);
+		if (!isIdentity(outputTransformer))
+			stage.outputTransformers.add(outputTransformer);
+		
+		return this;
+	}
+	
+	/**
+	 * Records a filter, see {@link SrgMapping#filter(SrgMapping)}.
+	 * 
+	 * @return The current instance of MappingPipeline.
+	 */
+	public MappingPipeline filter(SrgMapping filter)
+	{
+		// Filters only look at the input, so they can run before anything that does not change it
+		int idx = stages.size();
+		while (idx > 0 && stages.get(idx - 1).keepsInputs())
+			--idx;
+		
+		stages.add(idx, new FilterStage(filter));
+		return this;
+	}
+	
+	/**
+	 * Records an identity operation, see {@link SrgMapping#identity()}.
+	 * 
+	 * @return The current instance of MappingPipeline.
+	 */
+	public MappingPipeline identity()
+	{
+		stages.add(new IdentityStage());
+		return this;
+	}
+	
+	/**
+	 * Records a reverse, see {@link SrgMapping#reverse()}.
+	 * 
+	 * @return The current instance of MappingPipeline.
+	 */
+	public MappingPipeline reverse()
+	{
+		stages.add(new ReverseStage());
+		return this;
+	}
+	
+	/**
+	 * Applies the recorded operations to the source mapping.
+	 * 
+	 * @return A new SrgMapping instance holding the result.
+	 */
+	public SrgMapping materialize()
+	{
+		SrgMapping current = source;
+		ConflictPolicy policy = source.derivedConflictPolicy();
+		boolean fuseDuplicates = policy == ConflictPolicy.KEEP_LAST;
+		int start = 0;
+		
+		while (start != stages.size())
+		{
+			int end = segmentEnd(start, fuseDuplicates);
+			current = current.rebuild(policy, new FusedClassOp(stages.subList(start, end)), new FusedFieldOp(stages.subList(start, end)), new FusedMethodOp(stages.subList(start, end)));
+			start = end;
+		}
+		
+		return current != source ? current : source.clone();
+	}
+	
+	/**
+	 * Returns the end of the run of stages starting at start that can be fused into one pass.
+	 * 
+	 * Fusing keeps entries apart that the eager operations would have merged after each step, and only resolves the
+	 * duplicate inputs at the end of the run. A reverse turns outputs into inputs, so the run ends before a reverse
+	 * once an earlier stage may have produced duplicate inputs. Unless duplicates are silently resolved as
+	 * {@link ConflictPolicy#KEEP_LAST}, the run also ends after every stage that changes inputs, so conflicts are
+	 * reported (or rejected) at the same step as by the eager operations.
+	 * 
+	 * @param fuseDuplicates Whether duplicate inputs may be resolved later than the stage that produced them.
+	 */
+	private int segmentEnd(int start, boolean fuseDuplicates)
+	{
+		boolean uniqueInputs = true;
+		
+		for (int idx = start; idx != stages.size(); ++idx)
+		{
+			Stage stage = stages.get(idx);
+			if (stage instanceof ReverseStage && !uniqueInputs)
+				return idx;
+			
+			if (!stage.keepsInputs() && !fuseDuplicates)
+				return idx + 1;
+			
+			uniqueInputs &= stage.keepsInputs();
+		}
+		
+		return stages.size();
+	}
+	
+	private static boolean isIdentity(MappingTransformer transformer)
+	{
+		return transformer == null || transformer instanceof IdentityTransformer;
+	}
+	
+	/**
+	 * A single recorded operation, applied to one entry at a time.
+	 */
+	private abstract static class Stage
+	{
+		/**
+		 * Whether this stage leaves the input of every entry as it is.
+		 */
+		abstract boolean keepsInputs();
+		
+		abstract void applyClass(EntryBatch<SrgClass> batch, int idx);
+		
+		abstract void applyField(EntryBatch<SrgField> batch, int idx);
+		
+		abstract void applyMethod(EntryBatch<SrgMethod> batch, int idx);
+	}
+	
+	private static final class TransformStage extends Stage
+	{
+		final List<MappingTransformer> inputTransformers = new ArrayList<MappingTransformer>(2);
+		final List<MappingTransformer> outputTransformers = new ArrayList<MappingTransformer>(2);
+
+		@Override
+		boolean keepsInputs()
+		{
+			return inputTransformers.isEmpty();
+		}
+
+		@Override
+		void applyClass(EntryBatch<SrgClass> batch, int idx)
+		{
+			SrgClass input = batch.input(idx);
+			SrgClass output = batch.output(idx);
+			
+			for (MappingTransformer transformer : inputTransformers)
+			{
+				input = transformer.transform(input);
+			}
+			for (MappingTransformer transformer : outputTransformers)
+			{
+				output = transformer.transform(output);
+			}
+			
+			batch.set(idx, input, output);
+		}
+
+		@Override
+		void applyField(EntryBatch<SrgField> batch, int idx)
+		{
+			SrgField input = batch.input(idx);
+			SrgField output = batch.output(idx);
+			
+			for (MappingTransformer transformer : inputTransformers)
+			{
+				input = transformer.transform(input);
+			}
+			for (MappingTransformer transformer : outputTransformers)
+			{
+				output = transformer.transform(output);
+			}
+			
+			batch.set(idx, input, output);
+		}
+
+		@Override
+		void applyMethod(EntryBatch<SrgMethod> batch, int idx)
+		{
+			SrgMethod input = batch.input(idx);
+			SrgMethod output = batch.output(idx);
+			
+			for (MappingTransformer transformer : inputTransformers)
+			{
+				input = transformer.transform(input);
+			}
+			for (MappingTransformer transformer : outputTransformers)
+			{
+				output = transformer.transform(output);
+			}
+			
+			batch.set(idx, input, output);
+		}
+	}
+	
+	private static final class FilterStage extends Stage
+	{
+		private final SrgMapping filter;
+		
+		FilterStage(SrgMapping filter)
+		{
+			this.filter = filter;
+		}
+
+		@Override
+		boolean keepsInputs()
+		{
+			return true;
+		}
+
+		@Override
+		void applyClass(EntryBatch<SrgClass> batch, int idx)
+		{
+			if (filter.getClassMapping(batch.input(idx)) == null)
+				batch.drop(idx);
+		}
+
+		@Override
+		void applyField(EntryBatch<SrgField> batch, int idx)
+		{
+			if (filter.getFieldMapping(batch.input(idx)) == null)
+				batch.drop(idx);
+		}
+
+		@Override
+		void applyMethod(EntryBatch<SrgMethod> batch, int idx)
+		{
+			if (filter.getMethodMapping(batch.input(idx)) == null)
+				batch.drop(idx);
+		}
+	}
+	
+	private static final class IdentityStage extends Stage
+	{
+		@Override
+		boolean keepsInputs()
+		{
+			return true;
+		}
+
+		@Override
+		void applyClass(EntryBatch<SrgClass> batch, int idx)
+		{
+			batch.set(idx, batch.input(idx), batch.input(idx));
+		}
+
+		@Override
+		void applyField(EntryBatch<SrgField> batch, int idx)
+		{
+			batch.set(idx, batch.input(idx), batch.input(idx));
+		}
+
+		@Override
+		void applyMethod(EntryBatch<SrgMethod> batch, int idx)
+		{
+			batch.set(idx, batch.input(idx), batch.input(idx));
+		}
+	}
+	
+	private static final class ReverseStage extends Stage
+	{
+		@Override
+		boolean keepsInputs()
+		{
+			return false;
+		}
+
+		@Override
+		void applyClass(EntryBatch<SrgClass> batch, int idx)
+		{
+			batch.set(idx, batch.output(idx), batch.input(idx));
+		}
+
+		@Override
+		void applyField(EntryBatch<SrgField> batch, int idx)
+		{
+			batch.set(idx, batch.output(idx), batch.input(idx));
+		}
+
+		@Override
+		void applyMethod(EntryBatch<SrgMethod> batch, int idx)
+		{
+			batch.set(idx, batch.output(idx), batch.input(idx));
+		}
+	}
+	
+	private static final class FusedClassOp extends EntryBatch.Operation<SrgClass>
+	{
+		private final Stage[] stages;
+		
+		FusedClassOp(List<Stage> stages)
+		{
+			this.stages = stages.toArray(new Stage[stages.size()]);
+		}
+
+		@Override
+		void apply(EntryBatch<SrgClass> batch, int idx)
+		{
+			for (int i = 0; i != stages.length && !batch.isDropped(idx); ++i)
+			{
+				stages[i].applyClass(batch, idx);
+			}
+		}
+	}
+	
+	private static final class FusedFieldOp extends EntryBatch.Operation<SrgField>
+	{
+		private final Stage[] stages;
+		
+		FusedFieldOp(List<Stage> stages)
+		{
+			this.stages = stages.toArray(new Stage[stages.size()]);
+		}
+
+		@Override
+		void apply(EntryBatch<SrgField> batch, int idx)
+		{
+			for (int i = 0; i != stages.length && !batch.isDropped(idx); ++i)
+			{
+				stages[i].applyField(batch, idx);
+			}
+		}
+	}
+	
+	private static final class FusedMethodOp extends EntryBatch.Operation<SrgMethod>
+	{
+		private final Stage[] stages;
+		
+		FusedMethodOp(List<Stage> stages)
+		{
+			this.stages = stages.toArray(new Stage[stages.size()]);
+		}
+
+		@Override
+		void apply(EntryBatch<SrgMethod> batch, int idx)
+		{
+			for (int i = 0; i != stages.length && !batch.isDropped(idx); ++i)
+			{
+				stages[i].applyMethod(batch, idx);
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.lrns123.srgutility.util.ParallelUtil;
+
+/**
+ * Loads srg files in parallel.
+ * 
+ * Every file is split into chunks at line boundaries. The chunks are parsed on the shared fork-join pool
+ * into partial mappings, which are then merged into the target in file order. Entries therefore override
+ * each other exactly as they would when loading the files line by line. Duplicates are passed to the conflict policy
+ * of the target, although conflicts within different chunks may reach it in any order.
+ * 
+ * A {@link ConcurrentSrgMapping} target is filled by the chunks directly, skipping the merge. Conflicting entries
+ * in different chunks are then resolved in whatever order the chunks reach them, rather than in file order.
+ */
+final class ParallelSrgLoader
+{
+	/**
+	 * Files (or chunks) smaller than this are not split.
+	 */
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+	
+	private ParallelSrgLoader()
+	{
+	}
+	
+	static void load(SrgMapping mapping, List<File> srgFiles) throws IOException
+	{
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		for (File srgFile : srgFiles)
+		{
+			split(MappedSrgParser.open(srgFile), mapping, chunks);
+		}
+		
+		if (chunks.size() == 1)
+		{
+			chunks.get(0).parseInto(mapping);
+			return;
+		}
+		
+		List<Future<SrgMapping>> results = ParallelUtil.getPool().invokeAll(chunks);
+		
+		for (Future<SrgMapping> result : results)
+		{
+			SrgMapping partial = join(result);
+			if (partial != mapping)
+				merge(mapping, partial);
+		}
+	}
+	
+	/**
+	 * Splits a buffer into chunks that start and end on line boundaries.
+	 */
+	private static void split(ByteBuffer buffer, SrgMapping mapping, List<Chunk> chunks)
+	{
+		int size = buffer.limit();
+		int count = Math.max(1, Math.min(ParallelUtil.getParallelism() * 4, size / MIN_CHUNK_SIZE));
+		
+		int start = 0;
+		for (int i = 1; i <= count && start < size; ++i)
+		{
+			int end = (int) ((long) size * i / count);
+			while (end < size && buffer.get(end - 1) != '\n')
+				++end;
+			
+			if (end > start)
+				chunks.add(new Chunk(buffer, start, end, mapping));
+			
+			start = end;
+		}
+	}
+	
+	private static void merge(SrgMapping mapping, SrgMapping partial)
+	{
+		for (Entry<SrgClass, SrgClass> entry : partial.classTable().entrySet())
+		{
+			mapping.addClassMapping(entry.getKey(), entry.getValue());
+		}
+
+		for (Entry<SrgField, SrgField> entry : partial.fieldTable().entrySet())
+		{
+			mapping.addFieldMapping(entry.getKey(), entry.getValue());
+		}
+
+		for (Entry<SrgMethod, SrgMethod> entry : partial.methodTable().entrySet())
+		{
+			mapping.addMethodMapping(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	private static SrgMapping join(Future<SrgMapping> result) throws IOException
+	{
+		try
+		{
+			return result.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading srg files", e);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+	
+	private static final class Chunk implements Callable<SrgMapping>
+	{
+		private final ByteBuffer buffer;
+		private final int start;
+		private final int end;
+		private final SrgMapping target;
+		
+		Chunk(ByteBuffer buffer, int start, int end, SrgMapping target)
+		{
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+			this.target = target;
+		}
+		
+		void parseInto(SrgMapping mapping)
+		{
+			new MappedSrgParser(buffer.duplicate()).parse(start, end, new SrgMappingBuilder(mapping));
+		}
+
+		@Override
+		public SrgMapping call()
+		{
+			if (target instanceof ConcurrentSrgMapping)
+			{
+				parseInto(target);
+				return target;
+			}
+			
+			// Partial mappings only exist while loading the target, so their conflicts are reported as the target's
+			SrgMapping partial = new SrgMapping();
+			partial.setConflictPolicy(target.getConflictPolicy());
+			parseInto(partial);
+			return partial;
+		}
+	}
+}
@@ -0,0 +1,379 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import lombok.Cleanup;
+
+import com.lrns123.srgutility.util.ParallelUtil;
+
+/**
+ * Writes an SrgMapping with its lines in sorted order.
+ * 
+ * Instead of building and sorting a string per line, the rows of each table are sorted by their input
+ * symbol (which yields the same order) and streamed to the file through a large NIO buffer. Only row indexes are
+ * sorted, against arrays of the names of the inputs that are collected up front.
+ * 
+ * If sorting would exceed the memory budget, sorted runs are spilled to temporary files and merged.
+ * The budget defaults to a quarter of the maximum heap, and can be set in bytes through the
+ * srgutility.sortMemory system property.
+ */
+final class SortedSrgWriter
+{
+	private static final int BUFFER_SIZE = 1 << 20;
+	
+	/**
+	 * Rough heap cost per entry while sorting (row slots, name slots, index and merge buffer slot).
+	 */
+	private static final long BYTES_PER_ENTRY = 64;
+	
+	static final Comparator<SrgClass> CLASS_ORDER = new Comparator<SrgClass>()
+	{
+		@Override
+		public int compare(SrgClass o1, SrgClass o2)
+		{
+			return o1.getQualifiedName().compareTo(o2.getQualifiedName());
+		}
+	};
+	
+	static final Comparator<SrgField> FIELD_ORDER = new Comparator<SrgField>()
+	{
+		@Override
+		public int compare(SrgField o1, SrgField o2)
+		{
+			return o1.getQualifiedName().compareTo(o2.getQualifiedName());
+		}
+	};
+	
+	static final Comparator<SrgMethod> METHOD_ORDER = new Comparator<SrgMethod>()
+	{
+		@Override
+		public int compare(SrgMethod o1, SrgMethod o2)
+		{
+			int result = o1.getQualifiedName().compareTo(o2.getQualifiedName());
+			return result != 0 ? result : o1.getMethodDescriptor().compareTo(o2.getMethodDescriptor());
+		}
+	};
+	
+	private SortedSrgWriter()
+	{
+	}
+	
+	static void write(SrgMapping mapping, File outFile) throws IOException
+	{
+		if (outFile.getParentFile() != null && !outFile.getParentFile().exists())
+		{
+			outFile.getParentFile().mkdirs();
+		}
+		
+		long entries = (long) mapping.classTable().size() + mapping.fieldTable().size() + mapping.methodTable().size();
+		long budget = Long.getLong("srgutility.sortMemory", Runtime.getRuntime().maxMemory() / 4);
+		
+		@Cleanup ChannelWriter writer = new ChannelWriter(outFile);
+		
+		writer.write("# Mapping generated by Srg Utility (c) 2013 Lourens \"Lrns123\" Elzinga");
+		writer.newLine();
+		writer.write("# Generated on " + new Date());
+		writer.newLine();
+		
+		if (entries * BYTES_PER_ENTRY <= budget)
+		{
+			writeSorted(writer, "CL: ", mapping.classTable());
+			writeSorted(writer, "FD: ", mapping.fieldTable());
+			writeSorted(writer, "MD: ", mapping.methodTable());
+		}
+		else
+		{
+			int runSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1024, budget / BYTES_PER_ENTRY));
+			List<File> runs = new ArrayList<File>();
+			
+			try
+			{
+				writeRuns(runs, "CL: ", mapping.classTable(), runSize);
+				writeRuns(runs, "FD: ", mapping.fieldTable(), runSize);
+				writeRuns(runs, "MD: ", mapping.methodTable(), runSize);
+				
+				mergeRuns(runs, writer);
+			}
+			finally
+			{
+				for (File run : runs)
+				{
+					run.delete();
+				}
+			}
+		}
+	}
+	
+	private static void writeSorted(ChannelWriter writer, String prefix, Map<?, ?> table) throws IOException
+	{
+		Object[] rows = SymbolHashTable.rowsOf(table);
+		writeRun(writer, prefix, rows, 0, rows.length >> 1);
+	}
+	
+	private static void writeRuns(List<File> runs, String prefix, Map<?, ?> table, int runSize) throws IOException
+	{
+		Object[] rows = SymbolHashTable.rowsOf(table);
+		int count = rows.length >> 1;
+		
+		for (int from = 0; from < count; from += runSize)
+		{
+			File run = File.createTempFile("srgsort", ".tmp");
+			run.deleteOnExit();
+			runs.add(run);
+			
+			@Cleanup ChannelWriter writer = new ChannelWriter(run);
+			writeRun(writer, prefix, rows, from, Math.min(count, from + runSize));
+		}
+	}
+	
+	/**
+	 * Writes the rows [from, to) in the order of their inputs: by qualified name, and methods then by descriptor.
+	 */
+	private static void writeRun(ChannelWriter writer, String prefix, Object[] rows, int from, int to) throws IOException
+	{
+		int count = to - from;
+		final String[] names = new String[count];
+		final String[] descriptors = count != 0 && rows[from << 1] instanceof SrgMethod ? new String[count] : null;
+		int[] order = new int[count];
+		
+		for (int i = 0; i != count; ++i)
+		{
+			Object input = rows[(from + i) << 1];
+			if (descriptors != null)
+			{
+				SrgMethod method = (SrgMethod) input;
+				names[i] = method.getQualifiedName();
+				descriptors[i] = method.getMethodDescriptor();
+			}
+			else
+			{
+				names[i] = input.toString();
+			}
+			order[i] = i;
+		}
+		
+		ParallelUtil.sort(order, new ParallelUtil.IndexComparator()
+		{
+			@Override
+			public int compare(int i, int j)
+			{
+				int result = names[i].compareTo(names[j]);
+				return result != 0 || descriptors == null ? result : descriptors[i].compareTo(descriptors[j]);
+			}
+		});
+		
+		for (int i : order)
+		{
+			int row = (from + i) << 1;
+			writer.write(prefix);
+			writer.writeSymbol(rows[row]);
+			writer.write(" ");
+			writer.writeSymbol(rows[row + 1]);
+			writer.newLine();
+		}
+	}
+	
+	/**
+	 * K-way merge of sorted run files into the output.
+	 */
+	private static void mergeRuns(List<File> runs, ChannelWriter writer) throws IOException
+	{
+		PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(Math.max(1, runs.size()));
+		List<RunReader> readers = new ArrayList<RunReader>(runs.size());
+		
+		try
+		{
+			for (File run : runs)
+			{
+				RunReader reader = new RunReader(run);
+				readers.add(reader);
+				
+				if (reader.advance())
+					queue.add(reader);
+			}
+			
+			while (!queue.isEmpty())
+			{
+				RunReader reader = queue.poll();
+				writer.write(reader.line);
+				writer.newLine();
+				
+				if (reader.advance())
+					queue.add(reader);
+			}
+		}
+		finally
+		{
+			for (RunReader reader : readers)
+			{
+				reader.close();
+			}
+		}
+	}
+	
+	private static final class RunReader implements Comparable<RunReader>, Closeable
+	{
+		private final BufferedReader reader;
+		private String line;
+		
+		RunReader(File run) throws IOException
+		{
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(run), StandardCharsets.UTF_8), 1 << 16);
+		}
+		
+		boolean advance() throws IOException
+		{
+			line = reader.readLine();
+			return line != null;
+		}
+
+		@Override
+		public int compareTo(RunReader o)
+		{
+			return line.compareTo(o.line);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Writes UTF-8 text to a file channel through a large direct buffer.
+	 */
+	private static final class ChannelWriter implements Closeable
+	{
+		private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+		
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		
+		ChannelWriter(File file) throws IOException
+		{
+			channel = new FileOutputStream(file).getChannel();
+		}
+		
+		/**
+		 * Writes a symbol without building its string form. (Methods do not keep their full name.)
+		 */
+		void writeSymbol(Object symbol) throws IOException
+		{
+			if (symbol instanceof SrgMethod)
+			{
+				SrgMethod method = (SrgMethod) symbol;
+				write(method.getQualifiedName());
+				write(" ");
+				write(method.getMethodDescriptor());
+			}
+			else
+			{
+				write(symbol.toString());
+			}
+		}
+		
+		void newLine() throws IOException
+		{
+			write(LINE_SEPARATOR);
+		}
+		
+		void write(String value) throws IOException
+		{
+			int len = value.length();
+			
+			for (int i = 0; i != len; ++i)
+			{
+				char c = value.charAt(i);
+				if (c >= 0x80)
+				{
+					// Rare, encode the rest of the string the slow way
+					writeBytes(value.substring(i).getBytes(StandardCharsets.UTF_8));
+					return;
+				}
+				
+				if (!buffer.hasRemaining())
+					flush();
+				
+				buffer.put((byte) c);
+			}
+		}
+		
+		private void writeBytes(byte[] bytes) throws IOException
+		{
+			for (int off = 0; off < bytes.length;)
+			{
+				if (!buffer.hasRemaining())
+					flush();
+				
+				int count = Math.min(buffer.remaining(), bytes.length - off);
+				buffer.put(bytes, off, count);
+				off += count;
+			}
+		}
+		
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				flush();
+			}
+			finally
+			{
+				channel.close();
+			}
+		}
+	}
+}
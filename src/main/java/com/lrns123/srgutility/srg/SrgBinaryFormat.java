@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lombok.Cleanup;
+
+/**
+ * Reads and writes the binary srg mapping format.
+ * 
+ * Layout (big endian):
+ * <pre>
+ * int     magic ('SRGB')
+ * int     version
+ * int     string count, followed by each string (modified UTF-8, see DataOutput.writeUTF)
+ * section*
+ * byte    0 (end of file)
+ * </pre>
+ * Each section starts with a type byte ('C', 'F' or 'M') and an entry count, followed by the string ids of every entry:
+ * <ul>
+ * <li>CL: input qualified name, output qualified name</li>
+ * <li>FD: input package, class and name, output package, class and name</li>
+ * <li>MD: input package, class, name and descriptor, output package, class, name and descriptor</li>
+ * </ul>
+ */
+final class SrgBinaryFormat
+{
+	private static final int MAGIC = 0x53524742;
+	private static final int VERSION = 1;
+	
+	private static final byte SECTION_END = 0;
+	private static final byte SECTION_CLASSES = 'C';
+	private static final byte SECTION_FIELDS = 'F';
+	private static final byte SECTION_METHODS = 'M';
+	
+	private SrgBinaryFormat()
+	{
+	}
+	
+	static void write(SrgMapping mapping, File outFile) throws IOException
+	{
+		Map<SrgClass, SrgClass> classMapping = mapping.classTable();
+		Map<SrgField, SrgField> fieldMapping = mapping.fieldTable();
+		Map<SrgMethod, SrgMethod> methodMapping = mapping.methodTable();
+		
+		SrgStringTable strings = new SrgStringTable(classMapping.size() + fieldMapping.size() + methodMapping.size());
+		
+		int[] classIds = new int[classMapping.size() * 2];
+		int idx = 0;
+		for (Entry<SrgClass, SrgClass> entry : classMapping.entrySet())
+		{
+			classIds[idx++] = strings.add(entry.getKey().getQualifiedName());
+			classIds[idx++] = strings.add(entry.getValue().getQualifiedName());
+		}
+		
+		int[] fieldIds = new int[fieldMapping.size() * 6];
+		idx = 0;
+		for (Entry<SrgField, SrgField> entry : fieldMapping.entrySet())
+		{
+			idx = addField(strings, entry.getKey(), fieldIds, idx);
+			idx = addField(strings, entry.getValue(), fieldIds, idx);
+		}
+		
+		int[] methodIds = new int[methodMapping.size() * 8];
+		idx = 0;
+		for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
+		{
+			idx = addMethod(strings, entry.getKey(), methodIds, idx);
+			idx = addMethod(strings, entry.getValue(), methodIds, idx);
+		}
+		
+		if (outFile.getParentFile() != null && !outFile.getParentFile().exists())
+		{
+			outFile.getParentFile().mkdirs();
+		}
+		
+		@Cleanup DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile), 1 << 16));
+		
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		
+		out.writeInt(strings.size());
+		for (int i = 0, len = strings.size(); i != len; ++i)
+		{
+			out.writeUTF(strings.get(i));
+		}
+		
+		writeSection(out, SECTION_CLASSES, classIds, 2);
+		writeSection(out, SECTION_FIELDS, fieldIds, 6);
+		writeSection(out, SECTION_METHODS, methodIds, 8);
+		out.writeByte(SECTION_END);
+	}
+	
+	static void read(SrgMapping mapping, File inFile) throws IOException
+	{
+		byte[] data = Files.readAllBytes(inFile.toPath());
+		
+		try
+		{
+			read(mapping, new DataInputStream(new ByteArrayInputStream(data)), data.length, inFile);
+		}
+		catch (EOFException e)
+		{
+			throw new IOException("Unexpected end of " + inFile + ", the file is truncated", e);
+		}
+	}
+	
+	private static void read(SrgMapping mapping, DataInputStream in, int length, File inFile) throws IOException
+	{
+		if (in.readInt() != MAGIC)
+			throw new IOException(inFile + " is not a binary srg mapping");
+		
+		int version = in.readInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported binary srg mapping version " + version + " in " + inFile);
+		
+		// Every string takes at least its two byte length
+		int stringCount = in.readInt();
+		if (stringCount < 0 || stringCount > in.available() / 2)
+			throw new IOException("Invalid string count " + stringCount + " at offset 8 in " + inFile);
+		
+		String[] strings = new String[stringCount];
+		for (int i = 0; i != strings.length; ++i)
+		{
+			strings[i] = in.readUTF();
+		}
+		
+		StringIds ids = new StringIds(in, strings, length, inFile);
+		for (;;)
+		{
+			byte section = in.readByte();
+			if (section == SECTION_END)
+				break;
+			
+			int count = in.readInt();
+			if (count < 0)
+				throw new IOException("Invalid entry count " + count + " at offset " + (ids.offset() - 4) + " in " + inFile);
+			
+			switch (section)
+			{
+				case SECTION_CLASSES:
+					for (int i = 0; i != count; ++i)
+					{
+						SrgClass input = SrgClass.valueOf(ids.next());
+						SrgClass output = SrgClass.valueOf(ids.next());
+						mapping.addClassMapping(input, output);
+					}
+					break;
+				case SECTION_FIELDS:
+					for (int i = 0; i != count; ++i)
+					{
+						SrgField input = new SrgField(ids.next(), ids.next(), ids.next());
+						SrgField output = new SrgField(ids.next(), ids.next(), ids.next());
+						mapping.addFieldMapping(input, output);
+					}
+					break;
+				case SECTION_METHODS:
+					for (int i = 0; i != count; ++i)
+					{
+						SrgMethod input = new SrgMethod(ids.next(), ids.next(), ids.next(), ids.next());
+						SrgMethod output = new SrgMethod(ids.next(), ids.next(), ids.next(), ids.next());
+						mapping.addMethodMapping(input, output);
+					}
+					break;
+				default:
+					throw new IOException("Unknown section type " + section + " at offset " + (ids.offset() - 5) + " in " + inFile);
+			}
+		}
+	}
+	
+	private static int addField(SrgStringTable strings, SrgField field, int[] ids, int idx)
+	{
+		ids[idx++] = strings.add(field.getPackageName());
+		ids[idx++] = strings.add(field.getClassName());
+		ids[idx++] = strings.add(field.getFieldName());
+		return idx;
+	}
+	
+	private static int addMethod(SrgStringTable strings, SrgMethod method, int[] ids, int idx)
+	{
+		ids[idx++] = strings.add(method.getPackageName());
+		ids[idx++] = strings.add(method.getClassName());
+		ids[idx++] = strings.add(method.getMethodName());
+		ids[idx++] = strings.add(method.getMethodDescriptor());
+		return idx;
+	}
+	
+	private static void writeSection(DataOutputStream out, byte type, int[] ids, int stride) throws IOException
+	{
+		out.writeByte(type);
+		out.writeInt(ids.length / stride);
+		for (int id : ids)
+		{
+			out.writeInt(id);
+		}
+	}
+	
+	/**
+	 * Reads string ids from a section and resolves them, rejecting ids outside of the string table.
+	 */
+	private static final class StringIds
+	{
+		private final DataInputStream in;
+		private final String[] strings;
+		private final int length;
+		private final File file;
+		
+		StringIds(DataInputStream in, String[] strings, int length, File file)
+		{
+			this.in = in;
+			this.strings = strings;
+			this.length = length;
+			this.file = file;
+		}
+		
+		String next() throws IOException
+		{
+			int id = in.readInt();
+			if (id < 0 || id >= strings.length)
+				throw new IOException("Invalid string id " + id + " at offset " + (offset() - 4) + " in " + file);
+			
+			return strings[id];
+		}
+		
+		/**
+		 * Returns the offset of the next byte to read.
+		 */
+		int offset() throws IOException
+		{
+			return length - in.available();
+		}
+	}
+}
@@ -26,60 +26,111 @@
  */
 package com.lrns123.srgutility.srg;
 
-import com.lrns123.srgutility.util.ParseUtil;
-
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 /**
  * Represents a class name for srg mappings.
+ * 
+ * SrgClass instances are interned: use {@link #valueOf(String)} to obtain the shared instance for a class.
+ * Instances are compared by name, so instances created through the deprecated constructors still compare equal.
  */
-@EqualsAndHashCode
 public final class SrgClass
 {
 	@Getter private final String packageName;
 	@Getter private final String className;
 	@Getter private final String qualifiedName;
 	
+	private final int hash;
+	
+	/**
+	 * Returns the class name representation for a fully qualified name.
+	 * @param qualifiedName Fully qualified name of the class (e.g. 'package/of/the/Class')
+	 */
+	public static SrgClass valueOf(String qualifiedName)
+	{
+		return SrgSymbolTable.classOf(qualifiedName);
+	}
+	
+	/**
+	 * Returns the class name representation for a package and class name.
+	 * @param packageName Package of the class (e.g. 'package/of/the'), or an empty string for the default package
+	 * @param className Name of the class
+	 */
+	public static SrgClass valueOf(String packageName, String className)
+	{
+		return SrgSymbolTable.classOf(packageName, className);
+	}
+	
 	/**
 	 * Instantiates a new class name representation from an fully qualified name.
 	 * @param qualifiedName Fully qualified name of the class (e.g. 'package/of/the/Class')
+	 * @deprecated Use {@link #valueOf(String)}, which returns the shared instance.
 	 */
+	@Deprecated
 	public SrgClass(String qualifiedName)
 	{
-		String[] parts = ParseUtil.splitFQN(qualifiedName);
-		
-		this.className = parts[1];
-		this.packageName = parts[0];
-		
-		this.qualifiedName = qualifiedName;
+		this(valueOf(qualifiedName));
 	}
 	
+	/**
+	 * Instantiates a new class name representation from a package and class name.
+	 * @deprecated Use {@link #valueOf(String, String)}, which returns the shared instance.
+	 */
+	@Deprecated
 	public SrgClass(String packageName, String className)
 	{
-		this.packageName = packageName;
-		this.className = className;
-		this.qualifiedName = packageName.isEmpty() ? className : (packageName + '/' + className);
+		this(valueOf(packageName, className));
 	}
 	
 	/**
-	 * Copy constructor
-	 * @param other Instance to copy
+	 * Copy constructor, shares the name strings of the interned instance.
 	 */
 	private SrgClass(SrgClass other)
 	{
-		packageName = other.packageName;
-		className = other.className;
-		qualifiedName = other.qualifiedName;
+		this.packageName = other.packageName;
+		this.className = other.className;
+		this.qualifiedName = other.qualifiedName;
+		this.hash = other.hash;
+	}
+	
+	/**
+	 * Instantiates a new class name representation. Used by {@link SrgSymbolTable}, and by parsers for symbols that
+	 * are not interned.
+	 */
+	SrgClass(String packageName, String className, String qualifiedName)
+	{
+		this.packageName = packageName;
+		this.className = className;
+		this.qualifiedName = qualifiedName;
+		this.hash = qualifiedName.hashCode();
 	}
 	
 	/**
-	 * Creates a new SrgClass instance representing the same class.
+	 * SrgClass is immutable, so this returns the same instance.
 	 */
 	@Override
 	public SrgClass clone()
 	{
-		return new SrgClass(this);
+		return this;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+			return true;
+		
+		if (!(obj instanceof SrgClass))
+			return false;
+		
+		SrgClass other = (SrgClass) obj;
+		return hash == other.hash && qualifiedName.equals(other.qualifiedName);
 	}
 	
 	@Override
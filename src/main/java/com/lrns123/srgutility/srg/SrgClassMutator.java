@@ -72,6 +72,6 @@ public class SrgClassMutator
 	 */
 	public SrgClass get()
 	{
-		return modified ? new SrgClass(packageName, className) : reference;
+		return modified ? SrgClass.valueOf(packageName, className) : reference;
 	}
 }
@@ -28,13 +28,11 @@ package com.lrns123.srgutility.srg;
 
 import com.lrns123.srgutility.util.ParseUtil;
 
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 /**
  * Represents a field within a class.
  */
-@EqualsAndHashCode
 public final class SrgField
 {
 	@Getter private final String packageName;
@@ -42,32 +40,51 @@ public final class SrgField
 	@Getter private final String fieldName;
 	@Getter private final String qualifiedName;
 	
+	private final int hash;
+	
 	public SrgField(String qualifiedName)
 	{
 		String[] parts = ParseUtil.splitFQMN(qualifiedName);
 
-		this.packageName = parts[0];
-		this.className = parts[1];	
-		this.fieldName = parts[2];
+		this.packageName = SrgSymbolTable.intern(parts[0]);
+		this.className = SrgSymbolTable.intern(parts[1]);	
+		this.fieldName = SrgSymbolTable.intern(parts[2]);
 		
 		this.qualifiedName = packageName.isEmpty() ? (className + "/" + fieldName) : (packageName + "/" + className + "/" + fieldName);
+		this.hash = qualifiedName.hashCode();
 	}
 	
 	public SrgField(String packageName, String className, String fieldName)
+	{
+		this.packageName = SrgSymbolTable.intern(packageName);
+		this.className = SrgSymbolTable.intern(className);	
+		this.fieldName = SrgSymbolTable.intern(fieldName);
+		
+		this.qualifiedName = packageName.isEmpty() ? (className + "/" + fieldName) : (packageName + "/" + className + "/" + fieldName);
+		this.hash = qualifiedName.hashCode();
+	}
+	
+	/**
+	 * Constructs a field from pre-split parts. Used by parsers, which already have the qualified name.
+	 * The parts are used as given, callers intern them if they should be shared.
+	 */
+	SrgField(String packageName, String className, String fieldName, String qualifiedName)
 	{
 		this.packageName = packageName;
-		this.className = className;	
+		this.className = className;
 		this.fieldName = fieldName;
 		
-		this.qualifiedName = packageName.isEmpty() ? (className + "/" + fieldName) : (packageName + "/" + className + "/" + fieldName);
+		this.qualifiedName = qualifiedName;
+		this.hash = qualifiedName.hashCode();
 	}
 	
 	private SrgField(SrgField other)
 	{
 		this.packageName = other.packageName;
 		this.className = other.className;
-		this.fieldName = other.packageName;
+		this.fieldName = other.fieldName;
 		this.qualifiedName = other.qualifiedName;
+		this.hash = other.hash;
 	}
 			
 	@Override
@@ -76,6 +93,25 @@ public final class SrgField
 		return new SrgField(this);
 	}
 	
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+			return true;
+		
+		if (!(obj instanceof SrgField))
+			return false;
+		
+		SrgField other = (SrgField) obj;
+		return hash == other.hash && qualifiedName.equals(other.qualifiedName);
+	}
+	
 	@Override
 	public String toString()
 	{
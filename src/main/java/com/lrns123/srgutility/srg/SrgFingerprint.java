@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+import lombok.Getter;
+
+import com.lrns123.srgutility.util.ParallelUtil;
+
+/**
+ * 128-bit content fingerprint of a mapping or inheritance map.
+ * 
+ * Every entry is hashed into two independent 64-bit lanes, which are summed over all entries. The fingerprint
+ * therefore does not depend on the order of the entries, and is stable across runs, so it can be used as a cache key.
+ */
+public final class SrgFingerprint
+{
+	private static final long PRIME = 0x100000001b3L;
+	private static final long SEED_HIGH = 0xcbf29ce484222325L;
+	private static final long SEED_LOW = 0x84222325cbf29ce4L;
+	
+	private static final int TAG_CLASS = 1;
+	private static final int TAG_FIELD = 2;
+	private static final int TAG_METHOD = 3;
+	private static final int TAG_INHERITANCE = 4;
+	
+	/**
+	 * Number of entries hashed by a single task.
+	 */
+	private static final int THRESHOLD = 4096;
+	
+	@Getter private final long high;
+	@Getter private final long low;
+	
+	public SrgFingerprint(long high, long low)
+	{
+		this.high = high;
+		this.low = low;
+	}
+	
+	static SrgFingerprint of(SrgMapping mapping)
+	{
+		long[] lanes = new long[2];
+		
+		sum(lanes, mapping.classTable(), TAG_CLASS);
+		sum(lanes, mapping.fieldTable(), TAG_FIELD);
+		sum(lanes, mapping.methodTable(), TAG_METHOD);
+		
+		return new SrgFingerprint(lanes[0], lanes[1]);
+	}
+	
+	static SrgFingerprint of(SrgInheritanceMap inheritance)
+	{
+		long[] lanes = new long[2];
+		
+		sum(lanes, inheritance.getInheritanceMap(), TAG_INHERITANCE);
+		
+		return new SrgFingerprint(lanes[0], lanes[1]);
+	}
+	
+	private static void sum(long[] lanes, Map<?, ?> table, int tag)
+	{
+		Object[] rows = SymbolHashTable.rowsOf(table);
+		HashTask task = new HashTask(rows, tag, 0, rows.length >> 1);
+		
+		long[] result = rows.length >> 1 <= THRESHOLD || ParallelUtil.getParallelism() == 1 ? task.compute() : ParallelUtil.getPool().invoke(task);
+		
+		lanes[0] += result[0];
+		lanes[1] += result[1];
+	}
+	
+	/**
+	 * Hashes a single entry into one lane.
+	 */
+	private static long hashEntry(Object key, Object value, int tag, long seed)
+	{
+		long h = hashSymbol(key, (seed ^ tag) * PRIME);
+		h = (h ^ '=') * PRIME;
+		
+		if (value instanceof List)
+		{
+			for (Object parent : (List<?>) value)
+			{
+				h = hashSymbol(parent, (h ^ ' ') * PRIME);
+			}
+		}
+		else
+		{
+			h = hashSymbol(value, h);
+		}
+		
+		return mix(h);
+	}
+	
+	private static long hashSymbol(Object symbol, long h)
+	{
+		if (symbol instanceof SrgMethod)
+		{
+			SrgMethod method = (SrgMethod) symbol;
+			h = hashString(method.getQualifiedName(), h);
+			h = (h ^ ' ') * PRIME;
+			return hashString(method.getMethodDescriptor(), h);
+		}
+		else if (symbol instanceof SrgField)
+		{
+			return hashString(((SrgField) symbol).getQualifiedName(), h);
+		}
+		else
+		{
+			return hashString(((SrgClass) symbol).getQualifiedName(), h);
+		}
+	}
+	
+	/**
+	 * FNV-1a over the characters of the string.
+	 */
+	private static long hashString(String value, long h)
+	{
+		for (int i = 0; i != value.length(); ++i)
+		{
+			h = (h ^ value.charAt(i)) * PRIME;
+		}
+		return h;
+	}
+	
+	/**
+	 * 64-bit finalizer from MurmurHash3, spreads every input bit over the whole result.
+	 */
+	private static long mix(long h)
+	{
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof SrgFingerprint))
+			return false;
+		
+		SrgFingerprint other = (SrgFingerprint) obj;
+		return high == other.high && low == other.low;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return (int) (low ^ (low >>> 32));
+	}
+	
+	/**
+	 * Returns the fingerprint as 32 hexadecimal digits.
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%016x%016x", high, low);
+	}
+	
+	private static final class HashTask extends RecursiveTask<long[]>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * Key of entry i at 2i, value at 2i + 1.
+		 */
+		private final Object[] rows;
+		private final int tag;
+		private final int from;
+		private final int to;
+		
+		HashTask(Object[] rows, int tag, int from, int to)
+		{
+			this.rows = rows;
+			this.tag = tag;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected long[] compute()
+		{
+			if (to - from > THRESHOLD && ParallelUtil.getParallelism() > 1)
+			{
+				int mid = (from + to) >>> 1;
+				HashTask left = new HashTask(rows, tag, from, mid);
+				left.fork();
+				
+				long[] result = new HashTask(rows, tag, mid, to).compute();
+				long[] other = left.join();
+				
+				result[0] += other[0];
+				result[1] += other[1];
+				return result;
+			}
+			
+			long high = 0;
+			long low = 0;
+			
+			for (int i = from; i != to; ++i)
+			{
+				Object key = rows[i << 1];
+				Object value = rows[(i << 1) + 1];
+				high += hashEntry(key, value, tag, SEED_HIGH);
+				low += hashEntry(key, value, tag, SEED_LOW);
+			}
+			
+			return new long[] { high, low };
+		}
+	}
+}
@@ -49,11 +49,25 @@ import com.lrns123.srgutility.transformer.MappingTransformer;
 
 import net.md_5.specialsource.provider.InheritanceProvider;
 
-@EqualsAndHashCode
-@ToString
+@EqualsAndHashCode(exclude = { "index", "compiled" })
+@ToString(exclude = { "index", "compiled" })
 public class SrgInheritanceMap
 {
+	/**
+	 * Direct parents by class. Changes made directly to this map are not seen by the ancestor and descendant
+	 * queries, use setParent instead.
+	 */
 	@Getter private Map<SrgClass, List<SrgClass>> inheritanceMap = new HashMap<SrgClass, List<SrgClass>>();
+	
+	/**
+	 * Memoized transitive closure, built on the first query and dropped on any change.
+	 */
+	private InheritanceIndex index;
+	
+	/**
+	 * Numbered hierarchy for subtype checks, compiled on first use and dropped on any change.
+	 */
+	private CompiledHierarchy compiled;
 
 	public SrgInheritanceMap()
 	{
@@ -64,7 +78,7 @@ public class SrgInheritanceMap
 	 */
 	public SrgInheritanceMap(InheritanceProvider provider, SrgMapping mapping)
 	{
-		for (SrgClass clazz : mapping.getClassMapping().keySet())
+		for (SrgClass clazz : mapping.classTable().keySet())
 		{
 			Collection<String> parents = provider.getParents(clazz.getQualifiedName());
 			
@@ -77,7 +91,7 @@ public class SrgInheritanceMap
 			{
 				if (mapping.getClassMapping(candidate) != null)
 				{
-					filteredList.add(new SrgClass(candidate));
+					filteredList.add(SrgClass.valueOf(candidate));
 				}
 			}
 			
@@ -108,11 +122,11 @@ public class SrgInheritanceMap
 			
 			List<SrgClass> parents = new ArrayList<SrgClass>();
 			
-			SrgClass base = new SrgClass(tokens[0]);
+			SrgClass base = SrgClass.valueOf(tokens[0]);
 			
 			for (int i = 1; i < tokens.length; ++i)
 			{
-				parents.add(new SrgClass(tokens[i]));
+				parents.add(SrgClass.valueOf(tokens[i]));
 			}
 			
 			setParent(base, parents);
@@ -122,6 +136,8 @@ public class SrgInheritanceMap
 	public void setParent(SrgClass clazz, List<SrgClass> parents)
 	{
 		inheritanceMap.put(clazz, parents);
+		index = null;
+		compiled = null;
 	}
 	
 	public List<SrgClass> getParent(SrgClass clazz)
@@ -131,7 +147,80 @@ public class SrgInheritanceMap
 	
 	public List<SrgClass> getParent(String className)
 	{
-		return inheritanceMap.get(new SrgClass(className));
+		return inheritanceMap.get(SrgClass.valueOf(className));
+	}
+	
+	/**
+	 * Returns all (direct and indirect) ancestors of a class, direct parents first. Each ancestor is listed once,
+	 * even if it is reached along several paths or through a cycle.
+	 * 
+	 * @return An unmodifiable list, empty if the class has no known parents.
+	 */
+	public List<SrgClass> getAncestors(SrgClass clazz)
+	{
+		return getIndex().getAncestors(clazz);
+	}
+	
+	public List<SrgClass> getAncestors(String className)
+	{
+		return getAncestors(SrgClass.valueOf(className));
+	}
+	
+	/**
+	 * Returns all (direct and indirect) descendants of a class, direct children first. Each descendant is listed
+	 * once.
+	 * 
+	 * @return An unmodifiable list, empty if no class extends or implements the class.
+	 */
+	public List<SrgClass> getDescendants(SrgClass clazz)
+	{
+		return getIndex().getDescendants(clazz);
+	}
+	
+	public List<SrgClass> getDescendants(String className)
+	{
+		return getDescendants(SrgClass.valueOf(className));
+	}
+	
+	/**
+	 * Checks whether a class is, or extends or implements (directly or indirectly), another class.
+	 * Answered by the compiled hierarchy in constant time, see {@link #compile()}.
+	 */
+	public boolean isSubtypeOf(SrgClass clazz, SrgClass ancestor)
+	{
+		return compile().isSubtypeOf(clazz, ancestor);
+	}
+	
+	public boolean isSubtypeOf(String className, String ancestorName)
+	{
+		return isSubtypeOf(SrgClass.valueOf(className), SrgClass.valueOf(ancestorName));
+	}
+	
+	/**
+	 * Returns the compiled (numbered) form of this inheritance map. It is compiled on the first call and kept until
+	 * the map changes through setParent, loadMapping or transform, after which the next call compiles it again.
+	 */
+	public CompiledHierarchy compile()
+	{
+		if (compiled == null)
+			compiled = new CompiledHierarchy(inheritanceMap);
+		return compiled;
+	}
+	
+	private InheritanceIndex getIndex()
+	{
+		if (index == null)
+			index = new InheritanceIndex(inheritanceMap);
+		return index;
+	}
+	
+	/**
+	 * Returns a fingerprint of the contents of this inheritance map, independent of the order of its entries.
+	 * The order of the parents of a class is significant.
+	 */
+	public SrgFingerprint fingerprint()
+	{
+		return SrgFingerprint.of(this);
 	}
 		
 	@Override
@@ -169,6 +258,8 @@ public class SrgInheritanceMap
 		}
 		
 		this.inheritanceMap = temp.inheritanceMap;
+		this.index = null;
+		this.compiled = null;
 		
 		return this;
 	}
@@ -26,18 +26,16 @@
  */
 package com.lrns123.srgutility.srg;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import lombok.Cleanup;
 import lombok.Getter;
@@ -52,25 +50,145 @@ import com.lrns123.srgutility.transformer.MappingTransformer;
 public class SrgMapping
 {
 	/**
-	 * Mapping tables. Contains input -> output mapping.
+	 * Mapping tables. Contains input -> output mapping, iterated in the order the entries were added.
+	 * These may be shared with clones, and are only handed out as read-only views.
 	 */
-	@Getter private Map<SrgClass, SrgClass> classMapping;
-	@Getter private Map<SrgField, SrgField> fieldMapping;
-	@Getter private Map<SrgMethod, SrgMethod> methodMapping;
+	private Map<SrgClass, SrgClass> classMapping;
+	private Map<SrgField, SrgField> fieldMapping;
+	private Map<SrgMethod, SrgMethod> methodMapping;
+
+	/**
+	 * Set for tables that may be shared with a clone. Shared tables are copied before they are modified.
+	 */
+	private boolean classShared = false;
+	private boolean fieldShared = false;
+	private boolean methodShared = false;
+
+	/**
+	 * Inverse (output -> input) tables. Built on the first lookup by output, and kept up to date from then on.
+	 * The lazily built data is volatile, so readers of a mapping that no longer changes may share it safely.
+	 */
+	private volatile InverseTable<SrgClass> classInverse;
+	private volatile InverseTable<SrgField> fieldInverse;
+	private volatile InverseTable<SrgMethod> methodInverse;
+
+	/**
+	 * Members by owner and name, and classes by package. Built on the first query, dropped on any change.
+	 */
+	private volatile SymbolIndex symbolIndex;
+
+	/**
+	 * Input methods in SpecialSource form (owner/name descriptor) -> output method. Built on first use, dropped on
+	 * any change.
+	 */
+	private volatile Map<String, SrgMethod> methodKeyIndex;
+
+	/**
+	 * Content fingerprint, computed on first use and dropped on any change.
+	 */
+	private volatile SrgFingerprint fingerprint;
+
+	/**
+	 * Incremented on every change to the mapping tables, so derived data can be cached per revision. Atomic, as
+	 * concurrent mappings are changed by several threads at once.
+	 */
+	private final AtomicInteger revision = new AtomicInteger();
+
+	/**
+	 * The number of conflicts of which the default recorder keeps the details.
+	 */
+	public static final int DEFAULT_CONFLICT_LIMIT = 1000;
+
+	/**
+	 * Decides which output is kept when an input is mapped twice. Mappings derived from this one, such as clones and
+	 * the results of pipelines, get the same policy, see {@link #derivedConflictPolicy()}.
+	 * 
+	 * The default keeps the last output, and records the first {@link #DEFAULT_CONFLICT_LIMIT} conflicts while
+	 * counting all of them.
+	 */
+	@Getter private ConflictPolicy conflictPolicy = new ConflictRecorder(ConflictPolicy.KEEP_LAST, false, DEFAULT_CONFLICT_LIMIT);
 
 	
 	public SrgMapping()
 	{
-		this.classMapping = new HashMap<SrgClass, SrgClass>();
-		this.fieldMapping = new HashMap<SrgField, SrgField>();
-		this.methodMapping = new HashMap<SrgMethod, SrgMethod>();
+		this.classMapping = new SymbolHashTable<SrgClass>();
+		this.fieldMapping = new SymbolHashTable<SrgField>();
+		this.methodMapping = new SymbolHashTable<SrgMethod>();
 	}
 	
 	SrgMapping(int classMappings, int fieldMappings, int methodMappings)
 	{
-		this.classMapping = new HashMap<SrgClass, SrgClass>(classMappings);
-		this.fieldMapping = new HashMap<SrgField, SrgField>(fieldMappings);
-		this.methodMapping = new HashMap<SrgMethod, SrgMethod>(methodMappings);
+		this.classMapping = new SymbolHashTable<SrgClass>(classMappings);
+		this.fieldMapping = new SymbolHashTable<SrgField>(fieldMappings);
+		this.methodMapping = new SymbolHashTable<SrgMethod>(methodMappings);
+	}
+	
+	/**
+	 * Constructs a mapping on top of the specified (empty) mapping tables.
+	 */
+	protected SrgMapping(Map<SrgClass, SrgClass> classMapping, Map<SrgField, SrgField> fieldMapping, Map<SrgMethod, SrgMethod> methodMapping)
+	{
+		this.classMapping = classMapping;
+		this.fieldMapping = fieldMapping;
+		this.methodMapping = methodMapping;
+	}
+	
+	/**
+	 * Creates an empty mapping with the same storage as this mapping. Used for intermediate results.
+	 * 
+	 * @param classMappings Expected number of class mappings
+	 * @param fieldMappings Expected number of field mappings
+	 * @param methodMappings Expected number of method mappings
+	 */
+	protected SrgMapping createEmpty(int classMappings, int fieldMappings, int methodMappings)
+	{
+		return new SrgMapping(classMappings, fieldMappings, methodMappings);
+	}
+	
+	/**
+	 * Returns a read-only view of the class mappings (input -> output). Use the add methods to modify the mapping.
+	 * 
+	 * Tables shared with a clone are copied on their next modification, after which an earlier view no longer
+	 * reflects this mapping. Get a new view after modifying the mapping.
+	 */
+	public Map<SrgClass, SrgClass> getClassMapping()
+	{
+		return Collections.unmodifiableMap(classMapping);
+	}
+	
+	/**
+	 * Returns a read-only view of the field mappings (input -> output), see {@link #getClassMapping()}.
+	 */
+	public Map<SrgField, SrgField> getFieldMapping()
+	{
+		return Collections.unmodifiableMap(fieldMapping);
+	}
+	
+	/**
+	 * Returns a read-only view of the method mappings (input -> output), see {@link #getClassMapping()}.
+	 */
+	public Map<SrgMethod, SrgMethod> getMethodMapping()
+	{
+		return Collections.unmodifiableMap(methodMapping);
+	}
+	
+	/**
+	 * Mapping tables for use within the package, which read them without the views. Must not be modified, except
+	 * by subclasses that manage their own tables.
+	 */
+	Map<SrgClass, SrgClass> classTable()
+	{
+		return classMapping;
+	}
+	
+	Map<SrgField, SrgField> fieldTable()
+	{
+		return fieldMapping;
+	}
+	
+	Map<SrgMethod, SrgMethod> methodTable()
+	{
+		return methodMapping;
 	}
 	
 	/**
@@ -81,8 +199,22 @@ public class SrgMapping
 	 */
 	public void addClassMapping(SrgClass input, SrgClass output)
 	{
-		if (classMapping.put(input, output) != null)
-			System.out.println("Duplicate class entry for " + input.getQualifiedName() + "!");
+		if (classShared)
+		{
+			SrgMapping copy = createEmpty(classMapping.size(), 0, 0);
+			copy.classMapping.putAll(classMapping);
+			classMapping = copy.classMapping;
+			classShared = false;
+		}
+
+		modified();
+		SrgClass previous = classMapping.put(input, output);
+
+		if (previous != null && !previous.equals(output))
+			output = resolveConflict(classMapping, input, previous, output);
+
+		if (classInverse != null)
+			classInverse.update(input, previous, output);
 	}
 
 	/**
@@ -93,9 +225,22 @@ public class SrgMapping
 	 */
 	public void addFieldMapping(SrgField input, SrgField output)
 	{
-		if (fieldMapping.put(input, output) != null)
-			System.out.println("Duplicate field entry for " + input.getQualifiedName() + "!");
-		
+		if (fieldShared)
+		{
+			SrgMapping copy = createEmpty(0, fieldMapping.size(), 0);
+			copy.fieldMapping.putAll(fieldMapping);
+			fieldMapping = copy.fieldMapping;
+			fieldShared = false;
+		}
+
+		modified();
+		SrgField previous = fieldMapping.put(input, output);
+
+		if (previous != null && !previous.equals(output))
+			output = resolveConflict(fieldMapping, input, previous, output);
+
+		if (fieldInverse != null)
+			fieldInverse.update(input, previous, output);
 	}
 
 	/**
@@ -106,69 +251,227 @@ public class SrgMapping
 	 */
 	public void addMethodMapping(SrgMethod input, SrgMethod output)
 	{
-		if (methodMapping.put(input, output) != null)
-			System.out.println("Duplicate method entry for " + input.getQualifiedName() + "!");
-		
+		if (methodShared)
+		{
+			SrgMapping copy = createEmpty(0, 0, methodMapping.size());
+			copy.methodMapping.putAll(methodMapping);
+			methodMapping = copy.methodMapping;
+			methodShared = false;
+		}
+
+		modified();
+		SrgMethod previous = methodMapping.put(input, output);
+
+		if (previous != null && !previous.equals(output))
+			output = resolveConflict(methodMapping, input, previous, output);
+
+		if (methodInverse != null)
+			methodInverse.update(input, previous, output);
 	}
 
 	/**
-	 * Makes a deep copy of this mapping.
+	 * Sets the policy that resolves conflicting mappings. Mappings derived from this one afterwards use it as well,
+	 * but a {@link ConflictRecorder} is only shared with them if it was created as shared.
 	 * 
-	 * @return A new SrgMapping instance with identical mappings.
+	 * @param conflictPolicy The policy to use.
 	 */
-	@Override
-	public SrgMapping clone()
+	public void setConflictPolicy(ConflictPolicy conflictPolicy)
 	{
-		SrgMapping temp = new SrgMapping(classMapping.size(), fieldMapping.size(), methodMapping.size());
+		if (conflictPolicy == null)
+			throw new IllegalArgumentException("Conflict policy cannot be null");
+		
+		this.conflictPolicy = conflictPolicy;
+	}
 
-		for (Entry<SrgClass, SrgClass> entry : classMapping.entrySet())
+	/**
+	 * Returns the conflict policy for a new mapping derived from this one. An unshared recorder is replaced by a new
+	 * recorder over the same policy, so the new mapping records its own conflicts.
+	 */
+	ConflictPolicy derivedConflictPolicy()
+	{
+		if (conflictPolicy instanceof ConflictRecorder)
 		{
-			temp.addClassMapping(entry.getKey(), entry.getValue());
+			ConflictRecorder recorder = (ConflictRecorder) conflictPolicy;
+			if (!recorder.isShared())
+				return new ConflictRecorder(recorder.getPolicy(), false, recorder.getLimit());
 		}
+		return conflictPolicy;
+	}
 
-		for (Entry<SrgField, SrgField> entry : fieldMapping.entrySet())
+	/**
+	 * Lets the conflict policy pick between the previous and the new output of an input, after the new output was
+	 * stored. Restores the previous output if it is kept, or if the policy rejects the mapping.
+	 * 
+	 * @return The output that was kept.
+	 */
+	private <K> K resolveConflict(Map<K, K> table, K input, K previous, K output)
+	{
+		K kept = previous;
+		try
 		{
-			temp.addFieldMapping(entry.getKey(), entry.getValue());
+			kept = conflictPolicy.resolve(input, previous, output);
 		}
-
-		for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
+		finally
 		{
-			temp.addMethodMapping(entry.getKey(), entry.getValue());
+			if (kept != output)
+				table.put(input, kept);
 		}
-
-		return temp;
+		return kept;
 	}
 
 	/**
-	 * Reverses the mappings.
+	 * Builds a new mapping from the entries of this mapping, after passing them through the given operations.
 	 * 
-	 * @return The current (now reversed) instance of SrgMapping.
+	 * The operations run in parallel on large tables, but the results are added in the original order, so duplicates
+	 * are resolved (and reported) exactly as a sequential pass would.
+	 * 
+	 * @param policy The conflict policy of the new mapping.
 	 */
-	public SrgMapping reverse()
+	SrgMapping rebuild(ConflictPolicy policy, EntryBatch.Operation<SrgClass> classOp, EntryBatch.Operation<SrgField> fieldOp, EntryBatch.Operation<SrgMethod> methodOp)
 	{
-		SrgMapping temp = new SrgMapping(classMapping.size(), fieldMapping.size(), methodMapping.size());
+		EntryBatch<SrgClass> classes = EntryBatch.process(classMapping, classOp);
+		EntryBatch<SrgField> fields = EntryBatch.process(fieldMapping, fieldOp);
+		EntryBatch<SrgMethod> methods = EntryBatch.process(methodMapping, methodOp);
 
-		for (Entry<SrgClass, SrgClass> entry : classMapping.entrySet())
-		{
-			temp.addClassMapping(entry.getValue(), entry.getKey());
-		}
+		SrgMapping temp = createEmpty(classes.size(), fields.size(), methods.size());
+		temp.conflictPolicy = policy;
 
-		for (Entry<SrgField, SrgField> entry : fieldMapping.entrySet())
-		{
-			temp.addFieldMapping(entry.getValue(), entry.getKey());
-		}
+		addAll(temp, SymbolKind.CLASS, classes);
+		addAll(temp, SymbolKind.FIELD, fields);
+		addAll(temp, SymbolKind.METHOD, methods);
 
-		for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
+		return temp;
+	}
+
+	private static <K> void addAll(SrgMapping target, SymbolKind<K> kind, EntryBatch<K> batch)
+	{
+		for (int idx = 0; idx != batch.size(); ++idx)
 		{
-			temp.addMethodMapping(entry.getValue(), entry.getKey());
+			if (!batch.isDropped(idx))
+			{
+				kind.add(target, batch.input(idx), batch.output(idx));
+			}
 		}
+	}
 
+	/**
+	 * Returns the revision of the mapping tables. It changes whenever the tables change.
+	 */
+	public int getRevision()
+	{
+		return revision.get();
+	}
+
+	/**
+	 * Drops all derived indexes and bumps the revision. Called whenever the tables change.
+	 * Fields that are already null are not written, so frequent changes do not keep writing the volatile fields.
+	 */
+	private void modified()
+	{
+		revision.incrementAndGet();
+		if (symbolIndex != null)
+			symbolIndex = null;
+		if (methodKeyIndex != null)
+			methodKeyIndex = null;
+		if (fingerprint != null)
+			fingerprint = null;
+	}
+
+	/**
+	 * Drops all derived data, including the inverse tables. Used by subclasses that modify the tables themselves.
+	 */
+	void invalidate()
+	{
+		if (classInverse != null)
+			classInverse = null;
+		if (fieldInverse != null)
+			fieldInverse = null;
+		if (methodInverse != null)
+			methodInverse = null;
+		modified();
+	}
+
+	/**
+	 * Replaces the tables of this mapping with those of temp.
+	 */
+	private void swap(SrgMapping temp)
+	{
 		/**
 		 * Swap data
 		 */
 		this.classMapping = temp.classMapping;
 		this.fieldMapping = temp.fieldMapping;
 		this.methodMapping = temp.methodMapping;
+		this.classShared = temp.classShared;
+		this.fieldShared = temp.fieldShared;
+		this.methodShared = temp.methodShared;
+		this.classInverse = temp.classInverse;
+		this.fieldInverse = temp.fieldInverse;
+		this.methodInverse = temp.methodInverse;
+		modified();
+	}
+
+	/**
+	 * Makes a copy of this mapping. This takes constant time, as the copy shares the mapping tables with this
+	 * instance until either of them is modified.
+	 * 
+	 * @return A new SrgMapping instance with identical mappings.
+	 */
+	@Override
+	public SrgMapping clone()
+	{
+		SrgMapping temp = createEmpty(0, 0, 0);
+		temp.conflictPolicy = derivedConflictPolicy();
+
+		/**
+		 * Share tables, both instances copy them on their next modification
+		 */
+		temp.classMapping = this.classMapping;
+		temp.fieldMapping = this.fieldMapping;
+		temp.methodMapping = this.methodMapping;
+		temp.classShared = this.classShared = true;
+		temp.fieldShared = this.fieldShared = true;
+		temp.methodShared = this.methodShared = true;
+
+		return temp;
+	}
+
+	/**
+	 * Reverses the mappings.
+	 * 
+	 * If the inverse tables are built (see {@link #indexOutputs()}) and no output has more than one input, this
+	 * swaps the forward and inverse tables instead of rebuilding them.
+	 * 
+	 * @return The current (now reversed) instance of SrgMapping.
+	 */
+	public SrgMapping reverse()
+	{
+		if (classInverse != null && fieldInverse != null && methodInverse != null
+			&& !classInverse.hasCollisions() && !fieldInverse.hasCollisions() && !methodInverse.hasCollisions())
+		{
+			/**
+			 * Swap forward and inverse tables. The old forward tables become the new inverse, unless they are
+			 * shared with a clone, in which case the inverse is rebuilt when needed.
+			 */
+			Map<SrgClass, SrgClass> classes = classMapping;
+			Map<SrgField, SrgField> fields = fieldMapping;
+			Map<SrgMethod, SrgMethod> methods = methodMapping;
+
+			this.classMapping = classInverse.getInputs();
+			this.fieldMapping = fieldInverse.getInputs();
+			this.methodMapping = methodInverse.getInputs();
+			this.classInverse = classShared ? null : new InverseTable<SrgClass>(classes);
+			this.fieldInverse = fieldShared ? null : new InverseTable<SrgField>(fields);
+			this.methodInverse = methodShared ? null : new InverseTable<SrgMethod>(methods);
+			this.classShared = this.fieldShared = this.methodShared = false;
+			modified();
+
+			return this;
+		}
+
+		SrgMapping temp = rebuild(conflictPolicy, new ReverseOperation<SrgClass>(), new ReverseOperation<SrgField>(), new ReverseOperation<SrgMethod>());
+
+		swap(temp);
 
 		return this;
 	}
@@ -184,80 +487,193 @@ public class SrgMapping
 	 */
 	public SrgMapping transform(MappingTransformer inputTransformer, MappingTransformer outputTransformer)
 	{
+		MappingTransformer inputT = inputTransformer != null ? inputTransformer : new IdentityTransformer();
+		MappingTransformer outputT = outputTransformer != null ? outputTransformer : new IdentityTransformer();
+
+		SrgMapping temp = rebuild(conflictPolicy, new TransformOperation<SrgClass>(SymbolKind.CLASS, inputT, outputT),
+			new TransformOperation<SrgField>(SymbolKind.FIELD, inputT, outputT),
+			new TransformOperation<SrgMethod>(SymbolKind.METHOD, inputT, outputT));
 
-		if (inputTransformer == null)
+		swap(temp);
+
+		return this;
+	}	
+	
+	/**
+	 * Composes this mapping with another mapping. For every entry A -> B of this mapping, where next maps B -> C,
+	 * the result maps A -> C. Entries whose output is not mapped by next are kept as they are.
+	 * 
+	 * This is equivalent to transform(null, new SrgMappingTransformer(next)), but done as a single join.
+	 * 
+	 * @param next The mapping to apply after this mapping.
+	 * @return The current (now composed) instance of SrgMapping.
+	 */
+	public SrgMapping compose(SrgMapping next)
+	{
+		return compose(next, null);
+	}
+	
+	/**
+	 * Composes this mapping with another mapping, see {@link #compose(SrgMapping)}.
+	 * 
+	 * @param next The mapping to apply after this mapping.
+	 * @param dangling Receives every entry of next whose input is not an output of this mapping. May be null.
+	 * @return The current (now composed) instance of SrgMapping.
+	 */
+	public SrgMapping compose(SrgMapping next, SrgVisitor dangling)
+	{
+		SrgMapping temp = createEmpty(classMapping.size(), fieldMapping.size(), methodMapping.size());
+		
+		Set<SrgClass> reachedClasses = dangling != null ? new HashSet<SrgClass>(classMapping.size() * 2) : null;
+		Set<SrgField> reachedFields = dangling != null ? new HashSet<SrgField>(fieldMapping.size() * 2) : null;
+		Set<SrgMethod> reachedMethods = dangling != null ? new HashSet<SrgMethod>(methodMapping.size() * 2) : null;
+		
+		// Inputs are unique, so no duplicates can arise and the result tables are filled directly.
+		composeTable(classMapping, next.classMapping, temp.classMapping, reachedClasses);
+		composeTable(fieldMapping, next.fieldMapping, temp.fieldMapping, reachedFields);
+		composeTable(methodMapping, next.methodMapping, temp.methodMapping, reachedMethods);
+		
+		if (dangling != null)
 		{
-			inputTransformer = new IdentityTransformer();
+			for (Entry<SrgClass, SrgClass> entry : next.classMapping.entrySet())
+			{
+				if (!reachedClasses.contains(entry.getKey()))
+					dangling.visitClass(entry.getKey(), entry.getValue());
+			}
+			
+			for (Entry<SrgField, SrgField> entry : next.fieldMapping.entrySet())
+			{
+				if (!reachedFields.contains(entry.getKey()))
+					dangling.visitField(entry.getKey(), entry.getValue());
+			}
+			
+			for (Entry<SrgMethod, SrgMethod> entry : next.methodMapping.entrySet())
+			{
+				if (!reachedMethods.contains(entry.getKey()))
+					dangling.visitMethod(entry.getKey(), entry.getValue());
+			}
 		}
 
-		if (outputTransformer == null)
+		swap(temp);
+		
+		return this;
+	}
+	
+	private static <K> void composeTable(Map<K, K> table, Map<K, K> next, Map<K, K> result, Set<K> reached)
+	{
+		for (Entry<K, K> entry : table.entrySet())
 		{
-			outputTransformer = new IdentityTransformer();
+			K output = next.get(entry.getValue());
+			
+			if (output == null)
+			{
+				output = entry.getValue();
+			}
+			else if (reached != null)
+			{
+				reached.add(entry.getValue());
+			}
+			
+			result.put(entry.getKey(), output);
 		}
+	}
+	
+	/**
+	 * Compares this mapping with another mapping.
+	 * 
+	 * @param other The new mapping.
+	 * @return The entries that were added, removed and changed going from this mapping to other.
+	 */
+	public SrgMappingDelta diff(SrgMapping other)
+	{
+		SrgMappingDelta delta = new SrgMappingDelta();
 
-		SrgMapping temp = new SrgMapping(classMapping.size(), fieldMapping.size(), methodMapping.size());
+		diffTable(SymbolKind.CLASS, other, delta);
+		diffTable(SymbolKind.FIELD, other, delta);
+		diffTable(SymbolKind.METHOD, other, delta);
 
-		for (Entry<SrgClass, SrgClass> entry : classMapping.entrySet())
-		{
-			SrgClass input = inputTransformer.transform(entry.getKey());
-			SrgClass output = outputTransformer.transform(entry.getValue());
-			temp.addClassMapping(input, output);
-		}
+		return delta;
+	}
 
-		for (Entry<SrgField, SrgField> entry : fieldMapping.entrySet())
-		{
-			SrgField input = inputTransformer.transform(entry.getKey());
-			SrgField output = outputTransformer.transform(entry.getValue());
-			temp.addFieldMapping(input, output);
-		}
+	private <K> void diffTable(SymbolKind<K> kind, SrgMapping other, SrgMappingDelta delta)
+	{
+		Map<K, K> table = kind.table(this);
+		Map<K, K> otherTable = kind.table(other);
 
-		for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
+		EntryBatch<K> entries = differing(table, otherTable);
+		for (int idx = 0; idx != entries.size(); ++idx)
 		{
-			SrgMethod input = inputTransformer.transform(entry.getKey());
-			SrgMethod output = outputTransformer.transform(entry.getValue());
-			temp.addMethodMapping(input, output);
+			if (entries.isDropped(idx))
+				continue;
+
+			K output = otherTable.get(entries.input(idx));
+			if (output == null)
+			{
+				kind.add(delta.getRemoved(), entries.input(idx), entries.output(idx));
+			}
+			else
+			{
+				kind.add(delta.getChanged(), entries.input(idx), output);
+				kind.add(delta.getPrevious(), entries.input(idx), entries.output(idx));
+			}
 		}
 
 		/**
-		 * Swap data
+		 * Entries of other that differ and are not changes are additions
 		 */
-		this.classMapping = temp.classMapping;
-		this.fieldMapping = temp.fieldMapping;
-		this.methodMapping = temp.methodMapping;
+		EntryBatch<K> newEntries = differing(otherTable, table);
+		for (int idx = 0; idx != newEntries.size(); ++idx)
+		{
+			if (!newEntries.isDropped(idx) && !table.containsKey(newEntries.input(idx)))
+				kind.add(delta.getAdded(), newEntries.input(idx), newEntries.output(idx));
+		}
+	}
+
+	/**
+	 * Returns the entries of table that are missing from, or have a different output in, the other table.
+	 * Compared in parallel for large tables.
+	 */
+	private static <K> EntryBatch<K> differing(Map<K, K> table, final Map<K, K> other)
+	{
+		return EntryBatch.process(table, new EntryBatch.Operation<K>() {
+			@Override
+			void apply(EntryBatch<K> batch, int idx)
+			{
+				if (batch.output(idx).equals(other.get(batch.input(idx))))
+					batch.drop(idx);
+			}
+		});
+	}
+
+	/**
+	 * Applies a delta to this mapping. Removed entries are dropped, changed entries get their new output and
+	 * added entries are added. Applying diff(other) makes this mapping equal to other.
+	 * 
+	 * @param delta The delta to apply.
+	 * @return The current (now patched) instance of SrgMapping.
+	 */
+	public SrgMapping patch(SrgMappingDelta delta)
+	{
+		SrgMapping temp = rebuild(conflictPolicy, new PatchOperation<SrgClass>(SymbolKind.CLASS, delta),
+			new PatchOperation<SrgField>(SymbolKind.FIELD, delta),
+			new PatchOperation<SrgMethod>(SymbolKind.METHOD, delta));
+		delta.getAdded().accept(new SrgMappingBuilder(temp));
+
+		swap(temp);
 
 		return this;
-	}	
-	
+	}
+
 	/**
 	 * Turns this mapping into an identity map (input == output) based on the current input mappings.
 	 * @return 
 	 */
 	public SrgMapping identity()
 	{
-		SrgMapping temp = new SrgMapping(classMapping.size(), fieldMapping.size(), methodMapping.size());
-
-		for (Entry<SrgClass, SrgClass> entry : classMapping.entrySet())
-		{
-			temp.addClassMapping(entry.getKey(), entry.getKey());
-		}
-
-		for (Entry<SrgField, SrgField> entry : fieldMapping.entrySet())
-		{
-			temp.addFieldMapping(entry.getKey(), entry.getKey());
-		}
+		SrgMapping temp = rebuild(conflictPolicy, new IdentityOperation<SrgClass>(), new IdentityOperation<SrgField>(), new IdentityOperation<SrgMethod>());
 
-		for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
-		{
-			temp.addMethodMapping(entry.getKey(), entry.getKey());
-		}
+		swap(temp);
 
-		/**
-		 * Swap data
-		 */
-		this.classMapping = temp.classMapping;
-		this.fieldMapping = temp.fieldMapping;
-		this.methodMapping = temp.methodMapping;
-		
 		return this;
 	}
 	
@@ -269,193 +685,81 @@ public class SrgMapping
 	 */
 	public SrgMapping filter(SrgMapping filter)
 	{
-		SrgMapping temp = new SrgMapping(classMapping.size(), fieldMapping.size(), methodMapping.size());
-
-		for (Entry<SrgClass, SrgClass> entry : classMapping.entrySet())
-		{
-			if (filter.getClassMapping(entry.getKey()) != null)
-			{
-				temp.addClassMapping(entry.getKey(), entry.getValue());
-			}
-		}
-
-		for (Entry<SrgField, SrgField> entry : fieldMapping.entrySet())
-		{
-			if (filter.getFieldMapping(entry.getKey()) != null)
-			{
-				temp.addFieldMapping(entry.getKey(), entry.getValue());
-			}
-		}
-
-		for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
-		{
-			if (filter.getMethodMapping(entry.getKey()) != null)
-			{
-				temp.addMethodMapping(entry.getKey(), entry.getValue());
-			}
-		}
+		SrgMapping temp = rebuild(conflictPolicy, new FilterOperation<SrgClass>(SymbolKind.CLASS, filter),
+			new FilterOperation<SrgField>(SymbolKind.FIELD, filter),
+			new FilterOperation<SrgMethod>(SymbolKind.METHOD, filter));
 
-		/**
-		 * Swap data
-		 */
-		this.classMapping = temp.classMapping;
-		this.fieldMapping = temp.fieldMapping;
-		this.methodMapping = temp.methodMapping;
+		swap(temp);
 
 		return this;
 	}
 	
-	// Optimized split function for faster parsing.
-	private static int fastSplit(String input, String[] array, char delimiter, int skip)
-	{
-		int off = 0;
-        int next = 0;
-        int idx = 0;
-  
-        while ((next = input.indexOf(delimiter, off)) != -1)
-        {
-        	if (idx == array.length)
-        		return idx;
-        	
-        	if (skip > 0)        	
-        		--skip;        	
-        	else        	
-        		array[idx++] = input.substring(off, next);
-        	
-        	off = next + 1;
-        }
-        
-        if (idx != array.length)
-        {
-        	array[idx++] = input.substring(off);
-        }
-        
-        return idx;
+	/**
+	 * Loads an srg file into this mapping.
+	 */
+	public void loadMapping(File srgFile) throws IOException, IllegalArgumentException
+	{
+		loadMappings(Collections.singletonList(srgFile));
 	}
 	
-	public void loadMapping(File srgFile) throws IOException, IllegalArgumentException
+	/**
+	 * Loads several srg files into this mapping. Large files are parsed in parallel.
+	 * The result is the same as loading the files one after another.
+	 */
+	public void loadMappings(List<File> srgFiles) throws IOException, IllegalArgumentException
 	{
-		@Cleanup BufferedReader reader = new BufferedReader(new FileReader(srgFile));
-		String tokens[] = new String[4];
-		String line;
-		
-		while ((line = reader.readLine()) != null)
-		{
-			int numArgs = fastSplit(line, tokens, ' ', 1);
-			
-			if (numArgs == 0)
-				continue;
-							
-			if (line.startsWith("CL:"))
-			{
-				if (numArgs < 2)
-					System.out.println("Invalid CL entry found in srg: " + line);
-				
-				SrgClass input = new SrgClass(tokens[0]);
-				SrgClass output = new SrgClass(tokens[1]);
-				
-				addClassMapping(input, output);				
-			}
-			else if (line.startsWith("FD:"))
-			{
-				if (numArgs < 2)
-					System.out.println("Invalid FD entry found in srg: " + line);
-				
-				SrgField input = new SrgField(tokens[0]);
-				SrgField output = new SrgField(tokens[1]);
-				
-				addFieldMapping(input, output);			
-			}
-			else if (line.startsWith("MD:"))
-			{
-				if (numArgs < 4)
-					System.out.println("Invalid MD entry found in srg: " + line);
-				
-				SrgMethod input = new SrgMethod(tokens[0], tokens[1]);
-				SrgMethod output = new SrgMethod(tokens[2], tokens[3]);
-				
-				addMethodMapping(input, output);		
-			}
-		}		
+		ParallelSrgLoader.load(this, srgFiles);
 	}
 	
-	public void writeSorted(File outFile) throws IOException
+	/**
+	 * Loads a mapping in the binary format written by {@link #writeBinary(File)} into this mapping.
+	 */
+	public void loadBinary(File binFile) throws IOException
 	{
-		List<String> lines = new ArrayList<String>();
-		
-		for (Entry<SrgClass, SrgClass> entry : classMapping.entrySet())
-		{
-			lines.add("CL: " + entry.getKey() + " " + entry.getValue());
-		}
-
-		for (Entry<SrgField, SrgField> entry : fieldMapping.entrySet())
-		{
-			lines.add("FD: " + entry.getKey() + " " + entry.getValue());
-		}
-
-		for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
-		{
-			lines.add("MD: " + entry.getKey() + " " + entry.getValue());
-		}
-		
-		Collections.sort(lines);
+		SrgBinaryFormat.read(this, binFile);
+	}
 	
-		if (!outFile.getParentFile().exists())
-		{
-			outFile.getParentFile().mkdirs();
-		}
-		
-		@Cleanup PrintWriter writer = new PrintWriter(outFile);
-			
-		writer.println("# Mapping generated by Srg Utility (c) 2013 Lourens \"Lrns123\" Elzinga");
-		writer.println("# Generated on " + new Date());
-		
-		for (String line : lines)
-		{
-			writer.println(line);
-		}
-
+	/**
+	 * Writes this mapping in the binary format, which loads considerably faster than srg text.
+	 */
+	public void writeBinary(File outFile) throws IOException
+	{
+		SrgBinaryFormat.write(this, outFile);
+	}
+	
+	/**
+	 * Writes this mapping with all lines sorted, which gives stable, diffable output.
+	 */
+	public void writeSorted(File outFile) throws IOException
+	{
+		SortedSrgWriter.write(this, outFile);
 	}
 	
 	public void write(File outFile) throws IOException
 	{
-		if (!outFile.getParentFile().exists())
-		{
-			outFile.getParentFile().mkdirs();
-		}
-		
-		@Cleanup PrintWriter writer = new PrintWriter(outFile);
-			
-		writer.println("# Mapping generated by Srg Utility (c) 2013 Lourens \"Lrns123\" Elzinga");
-		writer.println("# Generated on " + new Date());
-		
+		@Cleanup SrgWriter writer = new SrgWriter(outFile);
+		accept(writer);
+	}
+	
+	/**
+	 * Passes every entry of this mapping to the visitor: first all classes, then all fields and then all methods.
+	 */
+	public void accept(SrgVisitor visitor)
+	{
 		for (Entry<SrgClass, SrgClass> entry : classMapping.entrySet())
 		{
-			writer.print("CL: ");
-			writer.print(entry.getKey());
-			writer.print(' ');
-			writer.print(entry.getValue());
-			writer.println();
+			visitor.visitClass(entry.getKey(), entry.getValue());
 		}
 
 		for (Entry<SrgField, SrgField> entry : fieldMapping.entrySet())
 		{
-			writer.print("FD: ");
-			writer.print(entry.getKey());
-			writer.print(' ');
-			writer.print(entry.getValue());
-			writer.println();
+			visitor.visitField(entry.getKey(), entry.getValue());
 		}
 
 		for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
 		{
-			writer.print("MD: ");
-			writer.print(entry.getKey());
-			writer.print(' ');
-			writer.print(entry.getValue());
-			writer.println();
+			visitor.visitMethod(entry.getKey(), entry.getValue());
 		}
-
 	}
 	
 	public SrgClass getClassMapping(SrgClass input)
@@ -465,7 +769,7 @@ public class SrgMapping
 	
 	public SrgClass getClassMapping(String inputSignature)
 	{
-		return classMapping.get(new SrgClass(inputSignature));
+		return classMapping.get(SrgClass.valueOf(inputSignature));
 	}
 	
 	public SrgField getFieldMapping(SrgField input)
@@ -487,4 +791,263 @@ public class SrgMapping
 	{
 		return methodMapping.get(new SrgMethod(inputSignature));
 	}
+
+	/**
+	 * Builds the inverse tables now instead of on the first lookup by output. Once built, they are kept up to date
+	 * by the add methods, and make {@link #reverse()} a swap.
+	 * 
+	 * @return The current instance of SrgMapping.
+	 */
+	public SrgMapping indexOutputs()
+	{
+		getClassInverse();
+		getFieldInverse();
+		getMethodInverse();
+		return this;
+	}
+	
+	/**
+	 * Looks up the input that maps to the given output class. If several inputs map to it, the first one
+	 * added is returned, see {@link #getClassCollisions()}.
+	 */
+	public SrgClass getClassByOutput(SrgClass output)
+	{
+		return getClassInverse().get(output);
+	}
+	
+	public SrgClass getClassByOutput(String outputSignature)
+	{
+		return getClassInverse().get(SrgClass.valueOf(outputSignature));
+	}
+	
+	public SrgField getFieldByOutput(SrgField output)
+	{
+		return getFieldInverse().get(output);
+	}
+	
+	public SrgField getFieldByOutput(String outputSignature)
+	{
+		return getFieldInverse().get(new SrgField(outputSignature));
+	}
+	
+	public SrgMethod getMethodByOutput(SrgMethod output)
+	{
+		return getMethodInverse().get(output);
+	}
+	
+	public SrgMethod getMethodByOutput(String outputSignature)
+	{
+		return getMethodInverse().get(new SrgMethod(outputSignature));
+	}
+	
+	/**
+	 * Returns the outputs that more than one input maps to, along with all of those inputs.
+	 */
+	public Map<SrgClass, List<SrgClass>> getClassCollisions()
+	{
+		return getClassInverse().getCollisions();
+	}
+	
+	public Map<SrgField, List<SrgField>> getFieldCollisions()
+	{
+		return getFieldInverse().getCollisions();
+	}
+	
+	public Map<SrgMethod, List<SrgMethod>> getMethodCollisions()
+	{
+		return getMethodInverse().getCollisions();
+	}
+	
+	/**
+	 * Returns the fields of the given (input) class.
+	 */
+	public List<SrgField> getFieldsOf(SrgClass owner)
+	{
+		return getSymbolIndex().getFields(owner);
+	}
+	
+	/**
+	 * Returns the methods of the given (input) class.
+	 */
+	public List<SrgMethod> getMethodsOf(SrgClass owner)
+	{
+		return getSymbolIndex().getMethods(owner);
+	}
+	
+	/**
+	 * Returns the (input) fields with the given name, in any class.
+	 */
+	public List<SrgField> getFieldsNamed(String fieldName)
+	{
+		return getSymbolIndex().getFields(fieldName);
+	}
+	
+	/**
+	 * Returns the (input) methods with the given name, in any class and with any descriptor.
+	 */
+	public List<SrgMethod> getMethodsNamed(String methodName)
+	{
+		return getSymbolIndex().getMethods(methodName);
+	}
+	
+	/**
+	 * Returns the (input) classes directly in the given package.
+	 */
+	public List<SrgClass> getClassesIn(String packageName)
+	{
+		return getSymbolIndex().getClasses(packageName);
+	}
+	
+	/**
+	 * Returns a fingerprint of the contents of this mapping. Mappings with the same entries have the same fingerprint,
+	 * regardless of their storage or the order in which the entries were added.
+	 */
+	public SrgFingerprint fingerprint()
+	{
+		if (fingerprint == null)
+			fingerprint = SrgFingerprint.of(this);
+		return fingerprint;
+	}
+	
+	/**
+	 * Returns all method mappings keyed by the input method in SpecialSource form ("owner/name descriptor").
+	 * The keys are kept until the mapping changes, so they can be reused across conversions.
+	 */
+	public Map<String, SrgMethod> getMethodKeyIndex()
+	{
+		if (methodKeyIndex == null)
+		{
+			Map<String, SrgMethod> index = new HashMap<String, SrgMethod>(methodMapping.size() * 4 / 3 + 1);
+			for (Entry<SrgMethod, SrgMethod> entry : methodMapping.entrySet())
+			{
+				index.put(entry.getKey().getQualifiedNameAndDescriptor(), entry.getValue());
+			}
+			methodKeyIndex = Collections.unmodifiableMap(index);
+		}
+		return methodKeyIndex;
+	}
+	
+	private SymbolIndex getSymbolIndex()
+	{
+		if (symbolIndex == null)
+			symbolIndex = new SymbolIndex(classMapping, fieldMapping, methodMapping);
+		return symbolIndex;
+	}
+	
+	private InverseTable<SrgClass> getClassInverse()
+	{
+		if (classInverse == null)
+			classInverse = new InverseTable<SrgClass>(classMapping, createEmpty(classMapping.size(), 0, 0).classMapping);
+		return classInverse;
+	}
+	
+	private InverseTable<SrgField> getFieldInverse()
+	{
+		if (fieldInverse == null)
+			fieldInverse = new InverseTable<SrgField>(fieldMapping, createEmpty(0, fieldMapping.size(), 0).fieldMapping);
+		return fieldInverse;
+	}
+	
+	private InverseTable<SrgMethod> getMethodInverse()
+	{
+		if (methodInverse == null)
+			methodInverse = new InverseTable<SrgMethod>(methodMapping, createEmpty(0, 0, methodMapping.size()).methodMapping);
+		return methodInverse;
+	}
+	
+	/**
+	 * Swaps the input and output of every entry.
+	 */
+	private static final class ReverseOperation<K> extends EntryBatch.Operation<K>
+	{
+		@Override
+		void apply(EntryBatch<K> batch, int idx)
+		{
+			batch.set(idx, batch.output(idx), batch.input(idx));
+		}
+	}
+	
+	/**
+	 * Maps every input to itself.
+	 */
+	private static final class IdentityOperation<K> extends EntryBatch.Operation<K>
+	{
+		@Override
+		void apply(EntryBatch<K> batch, int idx)
+		{
+			batch.set(idx, batch.input(idx), batch.input(idx));
+		}
+	}
+	
+	/**
+	 * Passes inputs and outputs through their transformers.
+	 */
+	private static final class TransformOperation<K> extends EntryBatch.Operation<K>
+	{
+		private final SymbolKind<K> kind;
+		private final MappingTransformer inputTransformer;
+		private final MappingTransformer outputTransformer;
+		
+		TransformOperation(SymbolKind<K> kind, MappingTransformer inputTransformer, MappingTransformer outputTransformer)
+		{
+			this.kind = kind;
+			this.inputTransformer = inputTransformer;
+			this.outputTransformer = outputTransformer;
+		}
+		
+		@Override
+		void apply(EntryBatch<K> batch, int idx)
+		{
+			batch.set(idx, kind.transform(inputTransformer, batch.input(idx)), kind.transform(outputTransformer, batch.output(idx)));
+		}
+	}
+	
+	/**
+	 * Drops the entries whose input is not mapped by the filter.
+	 */
+	private static final class FilterOperation<K> extends EntryBatch.Operation<K>
+	{
+		private final SymbolKind<K> kind;
+		private final SrgMapping filter;
+		
+		FilterOperation(SymbolKind<K> kind, SrgMapping filter)
+		{
+			this.kind = kind;
+			this.filter = filter;
+		}
+		
+		@Override
+		void apply(EntryBatch<K> batch, int idx)
+		{
+			if (kind.get(filter, batch.input(idx)) == null)
+			{
+				batch.drop(idx);
+			}
+		}
+	}
+	
+	/**
+	 * Drops the entries removed by a delta and gives changed entries their new output.
+	 */
+	private static final class PatchOperation<K> extends EntryBatch.Operation<K>
+	{
+		private final SymbolKind<K> kind;
+		private final SrgMappingDelta delta;
+		
+		PatchOperation(SymbolKind<K> kind, SrgMappingDelta delta)
+		{
+			this.kind = kind;
+			this.delta = delta;
+		}
+		
+		@Override
+		void apply(EntryBatch<K> batch, int idx)
+		{
+			K output;
+			if (kind.get(delta.getRemoved(), batch.input(idx)) != null)
+				batch.drop(idx);
+			else if ((output = kind.get(delta.getChanged(), batch.input(idx))) != null)
+				batch.set(idx, batch.input(idx), output);
+		}
+	}
 }
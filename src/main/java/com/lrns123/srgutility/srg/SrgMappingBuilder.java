@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+/**
+ * Visitor that adds every entry it receives to an SrgMapping. Package entries are ignored.
+ */
+final class SrgMappingBuilder implements SrgVisitor
+{
+	private final SrgMapping mapping;
+	
+	SrgMappingBuilder(SrgMapping mapping)
+	{
+		this.mapping = mapping;
+	}
+
+	@Override
+	public void visitPackage(String input, String output)
+	{
+		// Package mappings are not stored in SrgMapping.
+	}
+
+	@Override
+	public void visitClass(SrgClass input, SrgClass output)
+	{
+		mapping.addClassMapping(input, output);
+	}
+
+	@Override
+	public void visitField(SrgField input, SrgField output)
+	{
+		mapping.addFieldMapping(input, output);
+	}
+
+	@Override
+	public void visitMethod(SrgMethod input, SrgMethod output)
+	{
+		mapping.addMethodMapping(input, output);
+	}
+}
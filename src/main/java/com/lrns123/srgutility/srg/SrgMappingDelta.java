@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lombok.Cleanup;
+import lombok.Getter;
+
+import com.lrns123.srgutility.util.ParallelUtil;
+
+/**
+ * Difference between two mappings, as produced by {@link SrgMapping#diff(SrgMapping)}.
+ * 
+ * Holds the entries that were added, removed and changed (with their previous outputs). A delta can be applied to
+ * a mapping as a patch, and saved to and loaded from a (UTF-8) text file, where a changed entry is written as its
+ * removal followed by its addition.
+ */
+public class SrgMappingDelta
+{
+	/**
+	 * Entries only present in the new mapping.
+	 */
+	@Getter private final SrgMapping added;
+	
+	/**
+	 * Entries only present in the old mapping.
+	 */
+	@Getter private final SrgMapping removed;
+	
+	/**
+	 * Entries present in both mappings with a different output, mapped to their new output.
+	 */
+	@Getter private final SrgMapping changed;
+	
+	/**
+	 * The changed entries, mapped to their old output.
+	 */
+	@Getter private final SrgMapping previous;
+	
+	public SrgMappingDelta()
+	{
+		this(new SrgMapping(), new SrgMapping(), new SrgMapping(), new SrgMapping());
+	}
+	
+	SrgMappingDelta(SrgMapping added, SrgMapping removed, SrgMapping changed, SrgMapping previous)
+	{
+		this.added = added;
+		this.removed = removed;
+		this.changed = changed;
+		this.previous = previous;
+	}
+	
+	/**
+	 * Returns the total number of added, removed and changed entries.
+	 */
+	public int size()
+	{
+		return count(added) + count(removed) + count(changed);
+	}
+	
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+	
+	/**
+	 * Loads a delta written by {@link #write(File)}, adding its entries to this delta.
+	 * 
+	 * @param deltaFile The file to load.
+	 * @throws IOException
+	 * @throws IllegalArgumentException The file contains an invalid line.
+	 */
+	public void load(File deltaFile) throws IOException, IllegalArgumentException
+	{
+		@Cleanup BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(deltaFile), StandardCharsets.UTF_8));
+		
+		SrgMapping removals = new SrgMapping();
+		SrgMapping additions = new SrgMapping();
+		String line;
+		
+		while ((line = reader.readLine()) != null)
+		{
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			
+			char op = line.charAt(0);
+			String[] parts = line.substring(1).split(" ");
+			
+			if (op != '+' && op != '-')
+				throw new IllegalArgumentException("Invalid delta line: " + line);
+			
+			SrgMapping target = op == '-' ? removals : additions;
+			
+			if (parts[0].equals("CL:") && parts.length == 3)
+			{
+				target.addClassMapping(SrgClass.valueOf(parts[1]), SrgClass.valueOf(parts[2]));
+			}
+			else if (parts[0].equals("FD:") && parts.length == 3)
+			{
+				target.addFieldMapping(new SrgField(parts[1]), new SrgField(parts[2]));
+			}
+			else if (parts[0].equals("MD:") && parts.length == 5)
+			{
+				target.addMethodMapping(new SrgMethod(parts[1], parts[2]), new SrgMethod(parts[3], parts[4]));
+			}
+			else
+			{
+				throw new IllegalArgumentException("Invalid delta line: " + line);
+			}
+		}
+		
+		/**
+		 * An input that is both removed and added has changed
+		 */
+		split(SymbolKind.CLASS, removals, additions);
+		split(SymbolKind.FIELD, removals, additions);
+		split(SymbolKind.METHOD, removals, additions);
+	}
+	
+	/**
+	 * Sorts the loaded removals and additions of one table into removed, changed and added entries.
+	 */
+	private <K> void split(SymbolKind<K> kind, SrgMapping removals, SrgMapping additions)
+	{
+		Map<K, K> removalTable = kind.table(removals);
+		Map<K, K> additionTable = kind.table(additions);
+		
+		for (Entry<K, K> entry : removalTable.entrySet())
+		{
+			K output = additionTable.get(entry.getKey());
+			if (output == null)
+			{
+				kind.add(removed, entry.getKey(), entry.getValue());
+			}
+			else
+			{
+				kind.add(changed, entry.getKey(), output);
+				kind.add(previous, entry.getKey(), entry.getValue());
+			}
+		}
+		
+		for (Entry<K, K> entry : additionTable.entrySet())
+		{
+			if (!removalTable.containsKey(entry.getKey()))
+				kind.add(added, entry.getKey(), entry.getValue());
+		}
+	}
+	
+	/**
+	 * Writes the delta, sorted by input.
+	 * 
+	 * @param outFile The file to write to.
+	 * @throws IOException
+	 */
+	public void write(File outFile) throws IOException
+	{
+		if (outFile.getParentFile() != null && !outFile.getParentFile().exists())
+		{
+			outFile.getParentFile().mkdirs();
+		}
+		
+		@Cleanup PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8));
+		
+		writer.println("# Mapping delta generated by Srg Utility (c) 2013 Lourens \"Lrns123\" Elzinga");
+		writer.println("# Generated on " + new Date());
+		
+		writeTable(writer, "CL: ", added.classTable(), removed.classTable(), changed.classTable(), previous.classTable(), new SrgClass[0], SortedSrgWriter.CLASS_ORDER);
+		writeTable(writer, "FD: ", added.fieldTable(), removed.fieldTable(), changed.fieldTable(), previous.fieldTable(), new SrgField[0], SortedSrgWriter.FIELD_ORDER);
+		writeTable(writer, "MD: ", added.methodTable(), removed.methodTable(), changed.methodTable(), previous.methodTable(), new SrgMethod[0], SortedSrgWriter.METHOD_ORDER);
+	}
+	
+	private static <K> void writeTable(PrintWriter writer, String prefix, Map<K, K> added, Map<K, K> removed, Map<K, K> changed, Map<K, K> previous, K[] type, Comparator<K> order)
+	{
+		K[] inputs = Arrays.copyOf(type, added.size() + removed.size() + changed.size());
+		int count = 0;
+		
+		for (K input : added.keySet())
+			inputs[count++] = input;
+		for (K input : removed.keySet())
+			inputs[count++] = input;
+		for (K input : changed.keySet())
+			inputs[count++] = input;
+		
+		ParallelUtil.sort(inputs, order);
+		
+		for (K input : inputs)
+		{
+			K output;
+			if ((output = removed.get(input)) != null)
+			{
+				writeEntry(writer, '-', prefix, input, output);
+			}
+			else if ((output = changed.get(input)) != null)
+			{
+				writeEntry(writer, '-', prefix, input, previous.get(input));
+				writeEntry(writer, '+', prefix, input, output);
+			}
+			else
+			{
+				writeEntry(writer, '+', prefix, input, added.get(input));
+			}
+		}
+	}
+	
+	private static void writeEntry(PrintWriter writer, char op, String prefix, Object input, Object output)
+	{
+		writer.print(op);
+		writer.print(prefix);
+		writer.print(input);
+		writer.print(' ');
+		writer.print(output);
+		writer.println();
+	}
+	
+	private static int count(SrgMapping mapping)
+	{
+		return mapping.classTable().size() + mapping.fieldTable().size() + mapping.methodTable().size();
+	}
+}
@@ -31,25 +31,33 @@ import java.util.List;
 
 import com.lrns123.srgutility.util.ParseUtil;
 
-import lombok.AccessLevel;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 /**
  * Represents a method of a class.
+ * 
+ * The method descriptor is only parsed into argument and return types when they are first requested.
  */
-@EqualsAndHashCode
 public class SrgMethod
 {
 	@Getter private final String packageName;
 	@Getter private final String className;
 	@Getter private final String methodName;
-	@Getter(value = AccessLevel.PACKAGE) private final List<SrgTypeDescriptor> arguments;
-	@Getter private final SrgTypeDescriptor returnType;
 	
 	@Getter private final String methodDescriptor;
 	@Getter private final String qualifiedName;
-	@Getter private final String qualifiedNameAndDescriptor;
+	
+	/**
+	 * Combined qualified name and descriptor, built on first use.
+	 */
+	private String qualifiedNameAndDescriptor;
+	
+	private final int hash;
+	
+	/**
+	 * Parsed method descriptor, null until first requested.
+	 */
+	private Signature signature;
 	
 	public SrgMethod(String qualifiedNameAndDescriptor)
 	{
@@ -57,35 +65,18 @@ public class SrgMethod
 		if (idx == -1)
 			throw new IllegalArgumentException("Invalid method descriptor");
 		
-		this.qualifiedName = qualifiedNameAndDescriptor.substring(0, idx - 1);
+		this.qualifiedName = qualifiedNameAndDescriptor.substring(0, idx);
 		this.methodDescriptor = qualifiedNameAndDescriptor.substring(idx + 1);
 		this.qualifiedNameAndDescriptor = qualifiedNameAndDescriptor;
+		this.hash = generateHash();
 		
 		String[] parts = ParseUtil.splitFQMN(qualifiedName);
 		
-		this.methodName = parts[2];
-		this.className = parts[1];
-		this.packageName = parts[0];
-		this.arguments = new ArrayList<SrgTypeDescriptor>();
+		this.methodName = SrgSymbolTable.intern(parts[2]);
+		this.className = SrgSymbolTable.intern(parts[1]);
+		this.packageName = SrgSymbolTable.intern(parts[0]);
 		
-		if (methodDescriptor.charAt(0) != '(')
-			throw new IllegalArgumentException("Could not parse method descriptor. Expected '(', got '" + methodDescriptor.charAt(0) + "' in " + methodDescriptor);
-		
-		for (int i = 1, len = methodDescriptor.length();;)
-		{
-			if (i >= len)
-				throw new IllegalArgumentException("Premature end of method descriptor");
-			
-			if (methodDescriptor.charAt(i) == ')')
-			{
-				returnType = new SrgTypeDescriptor(methodDescriptor, ++i);
-				break;
-			}
-			
-			SrgTypeDescriptor type = new SrgTypeDescriptor(methodDescriptor, i);
-			arguments.add(type);
-			i += type.getQualifiedName().length();
-		}		
+		checkMethodDescriptor(methodDescriptor);
 	}
 	
 	public SrgMethod(String qualifiedName, String methodDescriptor)
@@ -94,45 +85,55 @@ public class SrgMethod
 		
 		this.qualifiedName = qualifiedName;
 		this.methodDescriptor = methodDescriptor;
-		this.qualifiedNameAndDescriptor = qualifiedName + " " + methodDescriptor;
-		
-		this.methodName = parts[2];
-		this.className = parts[1];
-		this.packageName = parts[0];
-		this.arguments = new ArrayList<SrgTypeDescriptor>();		
+		this.hash = generateHash();
 		
-		if (methodDescriptor.charAt(0) != '(')
-			throw new IllegalArgumentException("Could not parse method descriptor. Expected '(', got '" + methodDescriptor.charAt(0) + "' in " + methodDescriptor);
+		this.methodName = SrgSymbolTable.intern(parts[2]);
+		this.className = SrgSymbolTable.intern(parts[1]);
+		this.packageName = SrgSymbolTable.intern(parts[0]);
 		
-		for (int i = 1, len = methodDescriptor.length();;)
-		{
-			if (i >= len)
-				throw new IllegalArgumentException("Premature end of method descriptor");
-			
-			if (methodDescriptor.charAt(i) == ')')
-			{
-				returnType = new SrgTypeDescriptor(methodDescriptor, ++i);
-				break;
-			}
-			
-			SrgTypeDescriptor type = new SrgTypeDescriptor(methodDescriptor, i);
-			arguments.add(type);
-			i += type.getQualifiedName().length();
-		}
-
+		checkMethodDescriptor(methodDescriptor);
 	}
 	
-	SrgMethod(String packageName, String className, String methodName, List<SrgTypeDescriptor> arguments, SrgTypeDescriptor returnType)
+	/**
+	 * Constructs a method from pre-split parts. Used by parsers, which already have the qualified name.
+	 * The parts are used as given, callers intern them if they should be shared.
+	 */
+	SrgMethod(String packageName, String className, String methodName, String qualifiedName, String methodDescriptor)
 	{
 		this.packageName = packageName;
 		this.className = className;
 		this.methodName = methodName;
-		this.arguments = arguments;
-		this.returnType = returnType;
+		
+		this.qualifiedName = qualifiedName;
+		this.methodDescriptor = methodDescriptor;
+		this.hash = generateHash();
+		
+		checkMethodDescriptor(methodDescriptor);
+	}
+	
+	SrgMethod(String packageName, String className, String methodName, String methodDescriptor)
+	{
+		this.packageName = SrgSymbolTable.intern(packageName);
+		this.className = SrgSymbolTable.intern(className);
+		this.methodName = SrgSymbolTable.intern(methodName);
+		
+		this.qualifiedName = generateQualifiedName();
+		this.methodDescriptor = methodDescriptor;
+		this.hash = generateHash();
+		
+		checkMethodDescriptor(methodDescriptor);
+	}
+	
+	SrgMethod(String packageName, String className, String methodName, List<SrgTypeDescriptor> arguments, SrgTypeDescriptor returnType)
+	{
+		this.packageName = SrgSymbolTable.intern(packageName);
+		this.className = SrgSymbolTable.intern(className);
+		this.methodName = SrgSymbolTable.intern(methodName);
+		this.signature = new Signature(arguments, returnType);
 		
 		this.qualifiedName = generateQualifiedName();
 		this.methodDescriptor = generateMethodDescriptor();
-		this.qualifiedNameAndDescriptor = qualifiedName + " " + methodDescriptor;
+		this.hash = generateHash();
 	}
 	
 	/**
@@ -144,22 +145,80 @@ public class SrgMethod
 		this.packageName = other.packageName;
 		this.className = other.className;
 		this.methodName = other.methodName;
-		this.arguments = other.arguments;		
-		this.returnType = other.returnType;
+		this.signature = other.signature;
 		
 		this.methodDescriptor = other.methodDescriptor;
 		this.qualifiedName = other.qualifiedName;
-		this.qualifiedNameAndDescriptor = other.qualifiedNameAndDescriptor;
+		this.hash = other.hash;
+	}
+	
+	public String getQualifiedNameAndDescriptor()
+	{
+		String name = qualifiedNameAndDescriptor;
+		if (name == null)
+		{
+			name = qualifiedName + " " + methodDescriptor;
+			qualifiedNameAndDescriptor = name;
+		}
+		return name;
+	}
+	
+	List<SrgTypeDescriptor> getArguments()
+	{
+		return getSignature().arguments;
+	}
+	
+	public SrgTypeDescriptor getReturnType()
+	{
+		return getSignature().returnType;
 	}
 			
 	public int getArgumentCount()
 	{
-		return arguments.size();
+		return getSignature().arguments.size();
 	}
 	
 	public SrgTypeDescriptor getArgument(int idx)
 	{
-		return arguments.get(idx);
+		return getSignature().arguments.get(idx);
+	}
+	
+	private Signature getSignature()
+	{
+		// Racing threads may parse the descriptor twice, but Signature is immutable so either result is fine.
+		Signature sig = signature;
+		if (sig == null)
+		{
+			sig = parseMethodDescriptor(methodDescriptor);
+			signature = sig;
+		}
+		return sig;
+	}
+	
+	private static void checkMethodDescriptor(String methodDescriptor)
+	{
+		if (methodDescriptor.isEmpty() || methodDescriptor.charAt(0) != '(')
+			throw new IllegalArgumentException("Could not parse method descriptor. Expected '(' in " + methodDescriptor);
+	}
+	
+	private static Signature parseMethodDescriptor(String methodDescriptor)
+	{
+		List<SrgTypeDescriptor> arguments = new ArrayList<SrgTypeDescriptor>();
+		
+		for (int i = 1, len = methodDescriptor.length();;)
+		{
+			if (i >= len)
+				throw new IllegalArgumentException("Premature end of method descriptor");
+			
+			if (methodDescriptor.charAt(i) == ')')
+			{
+				return new Signature(arguments, SrgTypeDescriptor.parse(methodDescriptor, ++i));
+			}
+			
+			SrgTypeDescriptor type = SrgTypeDescriptor.parse(methodDescriptor, i);
+			arguments.add(type);
+			i += type.getQualifiedName().length();
+		}
 	}
 	
 	private String generateQualifiedName()
@@ -171,17 +230,41 @@ public class SrgMethod
 	
 	private String generateMethodDescriptor()
 	{
-		StringBuilder signature = new StringBuilder();
+		StringBuilder builder = new StringBuilder();
 		
-		signature.append('(');
-		for (SrgTypeDescriptor descriptor : arguments)
+		builder.append('(');
+		for (SrgTypeDescriptor descriptor : signature.arguments)
 		{
-			signature.append(descriptor.getQualifiedName());
+			builder.append(descriptor.getQualifiedName());
 		}
-		signature.append(')');
-		signature.append(returnType.getQualifiedName());
+		builder.append(')');
+		builder.append(signature.returnType.getQualifiedName());
+		
+		return builder.toString();
+	}
+
+	private int generateHash()
+	{
+		return 31 * qualifiedName.hashCode() + methodDescriptor.hashCode();
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+			return true;
 		
-		return signature.toString();
+		if (!(obj instanceof SrgMethod))
+			return false;
+		
+		SrgMethod other = (SrgMethod) obj;
+		return hash == other.hash && qualifiedName.equals(other.qualifiedName) && methodDescriptor.equals(other.methodDescriptor);
 	}
 
 	@Override
@@ -193,7 +276,7 @@ public class SrgMethod
 	@Override
 	public String toString()
 	{
-		return qualifiedNameAndDescriptor;
+		return getQualifiedNameAndDescriptor();
 	}
 	
 	/**
@@ -204,4 +287,19 @@ public class SrgMethod
 	{
 		return new SrgMethodMutator(this);
 	}
+	
+	/**
+	 * Parsed form of a method descriptor.
+	 */
+	private static final class Signature
+	{
+		private final List<SrgTypeDescriptor> arguments;
+		private final SrgTypeDescriptor returnType;
+		
+		Signature(List<SrgTypeDescriptor> arguments, SrgTypeDescriptor returnType)
+		{
+			this.arguments = arguments;
+			this.returnType = returnType;
+		}
+	}
 }
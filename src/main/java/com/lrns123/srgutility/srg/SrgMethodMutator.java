@@ -94,13 +94,13 @@ public class SrgMethodMutator
 	public void setReturnType(SrgClass type, int arrayDepth)
 	{
 		modified = true;
-		returnType = new SrgTypeDescriptor(type, arrayDepth);
+		returnType = SrgTypeDescriptor.valueOf(type, arrayDepth);
 	}
 	
 	public void setReturnType(SrgTypeDescriptor.Type type, int arrayDepth)
 	{
 		modified = true;
-		returnType = new SrgTypeDescriptor(type, arrayDepth);
+		returnType = SrgTypeDescriptor.valueOf(type, arrayDepth);
 	}
 	
 	public int getArgumentCount()
@@ -128,13 +128,13 @@ public class SrgMethodMutator
 	public void addArgument(SrgClass type, int arrayDepth)
 	{
 		cloneArguments();
-		arguments.add(new SrgTypeDescriptor(type, arrayDepth));
+		arguments.add(SrgTypeDescriptor.valueOf(type, arrayDepth));
 	}
 	
 	public void addArgument(SrgTypeDescriptor.Type type, int arrayDepth)
 	{
 		cloneArguments();
-		arguments.add(new SrgTypeDescriptor(type, arrayDepth));
+		arguments.add(SrgTypeDescriptor.valueOf(type, arrayDepth));
 	}
 	
 	public void setArgument(int idx, SrgTypeDescriptor descriptor)
@@ -146,13 +146,13 @@ public class SrgMethodMutator
 	public void setArgument(int idx, SrgClass type, int arrayDepth)
 	{
 		cloneArguments();
-		arguments.set(idx, new SrgTypeDescriptor(type, arrayDepth));
+		arguments.set(idx, SrgTypeDescriptor.valueOf(type, arrayDepth));
 	}
 	
 	public void setArgument(int idx, SrgTypeDescriptor.Type type, int arrayDepth)
 	{
 		cloneArguments();
-		arguments.set(idx, new SrgTypeDescriptor(type, arrayDepth));
+		arguments.set(idx, SrgTypeDescriptor.valueOf(type, arrayDepth));
 	}
 	
 	private void cloneArguments()
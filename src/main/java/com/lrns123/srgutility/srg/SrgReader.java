@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Streams the entries of an srg file to a {@link SrgVisitor}, without building an SrgMapping.
+ * 
+ * Entries are visited in file order. The symbols passed to the visitor are not interned in the global symbol table:
+ * they only share names through the reader's own name cache, which is bounded. Unless the visitor keeps the symbols,
+ * memory use therefore does not grow with the number of distinct names. Large files are memory-mapped, so the file
+ * itself is not copied into memory either.
+ */
+public class SrgReader
+{
+	/**
+	 * Maximum number of distinct names kept in the parser's name cache.
+	 */
+	private static final int NAME_CACHE_SIZE = 1 << 16;
+	
+	private final File srgFile;
+	
+	public SrgReader(File srgFile)
+	{
+		this.srgFile = srgFile;
+	}
+	
+	/**
+	 * Reads the file, passing every entry to the visitor.
+	 */
+	public void accept(SrgVisitor visitor) throws IOException, IllegalArgumentException
+	{
+		ByteBuffer buffer = MappedSrgParser.open(srgFile);
+		new MappedSrgParser(buffer, NAME_CACHE_SIZE, false).parse(0, buffer.limit(), visitor);
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.Arrays;
+
+/**
+ * Deduplicating string table. Assigns a dense integer id to every distinct string.
+ * 
+ * Ids are stable for the lifetime of the table. Thread-safe: additions are serialized, lookups do not lock unless
+ * they race with an addition.
+ */
+public final class SrgStringTable
+{
+	private volatile String[] values;
+	private int[] hashes;
+	private volatile int size;
+	
+	/**
+	 * Open-addressing index, holds (id + 1) or 0 for an empty slot.
+	 */
+	private volatile int[] index;
+	
+	public SrgStringTable()
+	{
+		this(256);
+	}
+	
+	public SrgStringTable(int expectedSize)
+	{
+		int capacity = Math.max(16, expectedSize);
+		values = new String[capacity];
+		hashes = new int[capacity];
+		index = new int[tableSizeFor(capacity * 2)];
+	}
+	
+	/**
+	 * Returns the number of distinct strings in the table.
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Returns the string with the specified id.
+	 */
+	public String get(int id)
+	{
+		if (id < 0 || id >= size)
+			throw new IndexOutOfBoundsException("Invalid string id " + id);
+		
+		return values[id];
+	}
+	
+	/**
+	 * Returns the id of a string, or -1 if it is not in the table.
+	 */
+	public int find(String value)
+	{
+		int id = probe(value);
+		if (id != -2)
+			return id;
+		
+		synchronized (this)
+		{
+			return probe(value);
+		}
+	}
+	
+	/**
+	 * Looks up a string without locking.
+	 * @return The id of the string, -1 if it is not in the table, or -2 if an entry that is still being added was found.
+	 */
+	private int probe(String value)
+	{
+		int[] index = this.index;
+		String[] values = this.values;
+		
+		int hash = value.hashCode();
+		int mask = index.length - 1;
+		
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask)
+		{
+			int entry = index[slot];
+			if (entry == 0)
+				return -1;
+			
+			int id = entry - 1;
+			String candidate = id < values.length ? values[id] : null;
+			if (candidate == null)
+				return -2;
+			
+			if (candidate == value || (candidate.hashCode() == hash && candidate.equals(value)))
+				return id;
+		}
+	}
+	
+	/**
+	 * Returns the id of a string, adding it to the table if needed.
+	 */
+	public synchronized int add(String value)
+	{
+		int hash = value.hashCode();
+		int mask = index.length - 1;
+		int slot;
+		
+		for (slot = mix(hash) & mask;; slot = (slot + 1) & mask)
+		{
+			int entry = index[slot];
+			if (entry == 0)
+				break;
+			
+			int id = entry - 1;
+			if (hashes[id] == hash)
+			{
+				String candidate = values[id];
+				if (candidate == value || candidate.equals(value))
+					return id;
+			}
+		}
+		
+		if (size == values.length)
+		{
+			values = Arrays.copyOf(values, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		
+		int id = size++;
+		values[id] = value;
+		hashes[id] = hash;
+		index[slot] = id + 1;
+		
+		// Keep the load factor at or below 0.5
+		if (size * 2 > index.length)
+			rehash(index.length * 2);
+		
+		return id;
+	}
+	
+	private void rehash(int capacity)
+	{
+		int[] newIndex = new int[capacity];
+		int mask = capacity - 1;
+		
+		for (int id = 0; id != size; ++id)
+		{
+			int slot = mix(hashes[id]) & mask;
+			while (newIndex[slot] != 0)
+				slot = (slot + 1) & mask;
+			
+			newIndex[slot] = id + 1;
+		}
+		
+		index = newIndex;
+	}
+	
+	/**
+	 * Spreads the bits of a hash code, so that strings with similar hashes do not cluster.
+	 */
+	static int mix(int hash)
+	{
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * Returns the smallest power of two greater than or equal to the specified capacity.
+	 */
+	static int tableSizeFor(int capacity)
+	{
+		int size = 16;
+		while (size < capacity)
+			size <<= 1;
+		return size;
+	}
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.lrns123.srgutility.util.ParseUtil;
+
+/**
+ * Canonicalizing symbol table for srg symbols.
+ * 
+ * Every SrgClass is created through this table, so there is exactly one live instance per qualified name.
+ * Name fragments (packages, classes and members) are deduplicated as well.
+ * 
+ * The table only holds its entries weakly: once no mapping (or anything else) references a class or fragment, it is
+ * collected and its entry is dropped.
+ * 
+ * The table is global and safe for concurrent use.
+ */
+final class SrgSymbolTable
+{
+	private static final ConcurrentMap<String, ClassReference> classes = new ConcurrentHashMap<String, ClassReference>(8192);
+	private static final ConcurrentMap<Object, StringReference> strings = new ConcurrentHashMap<Object, StringReference>(16384);
+	private static final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+	
+	private SrgSymbolTable()
+	{
+	}
+	
+	/**
+	 * Returns the canonical instance of the specified string.
+	 * @param value The string to intern
+	 * @return A shared string equal to value
+	 */
+	static String intern(String value)
+	{
+		StringReference reference = strings.get(new StringKey(value));
+		String existing = reference != null ? reference.get() : null;
+		if (existing != null)
+			return existing;
+		
+		purge();
+		
+		reference = new StringReference(value);
+		while (true)
+		{
+			StringReference previous = strings.putIfAbsent(reference, reference);
+			if (previous == null)
+				return value;
+			
+			existing = previous.get();
+			if (existing != null)
+				return existing;
+			
+			// The previous string was collected, but its entry has not been purged yet
+			if (strings.replace(previous, previous, reference))
+				return value;
+		}
+	}
+	
+	/**
+	 * Returns the shared SrgClass for a fully qualified name, creating it if needed.
+	 * @param qualifiedName Fully qualified name of the class (e.g. 'package/of/the/Class')
+	 */
+	static SrgClass classOf(String qualifiedName)
+	{
+		SrgClass clazz = findClass(qualifiedName);
+		if (clazz != null)
+			return clazz;
+		
+		String[] parts = ParseUtil.splitFQN(qualifiedName);
+		return register(new SrgClass(intern(parts[0]), intern(parts[1]), intern(qualifiedName)));
+	}
+	
+	/**
+	 * Returns the shared SrgClass for a package and class name, creating it if needed.
+	 */
+	static SrgClass classOf(String packageName, String className)
+	{
+		String qualifiedName = packageName.isEmpty() ? className : (packageName + '/' + className);
+		
+		SrgClass clazz = findClass(qualifiedName);
+		if (clazz != null)
+			return clazz;
+		
+		return register(new SrgClass(intern(packageName), intern(className), intern(qualifiedName)));
+	}
+	
+	/**
+	 * Returns the shared SrgClass for a fully qualified name, without creating it.
+	 * @return The SrgClass, or null if no such class has been created.
+	 */
+	static SrgClass findClass(String qualifiedName)
+	{
+		ClassReference reference = classes.get(qualifiedName);
+		return reference != null ? reference.get() : null;
+	}
+	
+	private static SrgClass register(SrgClass clazz)
+	{
+		purge();
+		
+		ClassReference reference = new ClassReference(clazz);
+		while (true)
+		{
+			ClassReference existing = classes.putIfAbsent(reference.qualifiedName, reference);
+			if (existing == null)
+				return clazz;
+			
+			SrgClass current = existing.get();
+			if (current != null)
+				return current;
+			
+			// The previous instance was collected, but its entry has not been purged yet
+			if (classes.replace(reference.qualifiedName, existing, reference))
+				return clazz;
+		}
+	}
+	
+	/**
+	 * Drops the entries of collected classes and strings.
+	 */
+	private static void purge()
+	{
+		Reference<?> reference;
+		while ((reference = collected.poll()) != null)
+		{
+			if (reference instanceof ClassReference)
+			{
+				ClassReference entry = (ClassReference) reference;
+				classes.remove(entry.qualifiedName, entry);
+			}
+			else
+			{
+				strings.remove(reference, reference);
+			}
+		}
+	}
+	
+	private static final class ClassReference extends WeakReference<SrgClass>
+	{
+		private final String qualifiedName;
+		
+		ClassReference(SrgClass clazz)
+		{
+			super(clazz, collected);
+			this.qualifiedName = clazz.getQualifiedName();
+		}
+	}
+	
+	/**
+	 * Weakly held string, which is its own key in the string table. Compares equal to a {@link StringKey} (or another
+	 * reference) for the same string, and only to itself once collected.
+	 */
+	private static final class StringReference extends WeakReference<String>
+	{
+		private final int hash;
+		
+		StringReference(String value)
+		{
+			super(value, collected);
+			this.hash = value.hashCode();
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (obj == this)
+				return true;
+			
+			String value = get();
+			if (value == null)
+				return false;
+			
+			if (obj instanceof StringKey)
+				return value.equals(((StringKey) obj).value);
+			
+			return obj instanceof StringReference && value.equals(((StringReference) obj).get());
+		}
+	}
+	
+	/**
+	 * Lookup key for the string table.
+	 */
+	private static final class StringKey
+	{
+		private final String value;
+		
+		StringKey(String value)
+		{
+			this.value = value;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return value.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof StringReference && value.equals(((StringReference) obj).get());
+		}
+	}
+}
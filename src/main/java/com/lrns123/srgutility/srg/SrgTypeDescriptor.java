@@ -26,11 +26,19 @@
  */
 package com.lrns123.srgutility.srg;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 /**
  * Represents a type descriptor.
+ * 
+ * Type descriptors are immutable. Use the valueOf and parse factories to obtain shared instances.
  */
 @EqualsAndHashCode
 public class SrgTypeDescriptor
@@ -49,43 +57,128 @@ public class SrgTypeDescriptor
 		VOID		// V
 	}
 	
+	/**
+	 * Highest array depth for which descriptors are cached.
+	 */
+	private static final int MAX_CACHED_DEPTH = 3;
+	
+	/**
+	 * Preallocated primitive descriptors, indexed by type and array depth.
+	 */
+	private static final SrgTypeDescriptor[][] primitiveCache = new SrgTypeDescriptor[Type.values().length][MAX_CACHED_DEPTH + 1];
+	
+	/**
+	 * Object descriptors by qualified class name, one map per array depth. Descriptors are held weakly, like the
+	 * classes in {@link SrgSymbolTable}, and dropped once they are collected.
+	 */
+	@SuppressWarnings("unchecked")
+	private static final ConcurrentMap<String, DescriptorReference>[] objectCache = new ConcurrentMap[MAX_CACHED_DEPTH + 1];
+	private static final ReferenceQueue<SrgTypeDescriptor> collected = new ReferenceQueue<SrgTypeDescriptor>();
+	
+	static
+	{
+		for (Type type : Type.values())
+		{
+			if (type == Type.OBJECT)
+				continue;
+			
+			for (int depth = 0; depth <= MAX_CACHED_DEPTH; ++depth)
+			{
+				primitiveCache[type.ordinal()][depth] = new SrgTypeDescriptor(type, depth);
+			}
+		}
+		
+		for (int depth = 0; depth <= MAX_CACHED_DEPTH; ++depth)
+		{
+			objectCache[depth] = new ConcurrentHashMap<String, DescriptorReference>();
+		}
+	}
+	
 	@Getter private final Type type;
 	@Getter private final int arrayDepth;
 	@Getter private final SrgClass classType;
 	@Getter private final String qualifiedName;
 
 	/**
-	 * Constructs a new SrgTypeDescriptor. Use for every type *except* Object.
+	 * Returns a SrgTypeDescriptor. Use for every type *except* Object.
 	 * @param type The descriptor's type.
 	 * @param arrayDepth The number of array dimensions (0 if none)
 	 */
-	public SrgTypeDescriptor(Type type, int arrayDepth)
+	public static SrgTypeDescriptor valueOf(Type type, int arrayDepth)
 	{
 		if (type == Type.OBJECT)
 		{
 			throw new IllegalArgumentException();
 		}
 		
-		this.type = type;
-		this.arrayDepth = arrayDepth;
-		this.classType = null;
-		this.qualifiedName = generateQualifiedName();
+		if (arrayDepth >= 0 && arrayDepth <= MAX_CACHED_DEPTH)
+		{
+			return primitiveCache[type.ordinal()][arrayDepth];
+		}
+		
+		return new SrgTypeDescriptor(type, arrayDepth);
 	}
 	
 	/**
-	 * Constructs a new SrgTypeDescriptor. Use for OBJECT type only.
+	 * Returns a SrgTypeDescriptor. Use for OBJECT type only.
 	 * @param classType The class type for this type descriptor.
 	 * @param arrayDepth The number of array dimensions (0 if none)
 	 */
-	public SrgTypeDescriptor(SrgClass classType, int arrayDepth)
+	public static SrgTypeDescriptor valueOf(SrgClass classType, int arrayDepth)
 	{
-		this.type = Type.OBJECT;
-		this.arrayDepth = arrayDepth;
-		this.classType = classType;
-		this.qualifiedName = generateQualifiedName();
+		if (arrayDepth < 0 || arrayDepth > MAX_CACHED_DEPTH)
+		{
+			return new SrgTypeDescriptor(classType, arrayDepth);
+		}
+		
+		ConcurrentMap<String, DescriptorReference> cache = objectCache[arrayDepth];
+		String className = classType.getQualifiedName();
+		
+		DescriptorReference reference = cache.get(className);
+		SrgTypeDescriptor descriptor = reference != null ? reference.get() : null;
+		if (descriptor != null)
+			return descriptor;
+		
+		purge();
+		
+		descriptor = new SrgTypeDescriptor(classType, arrayDepth);
+		reference = new DescriptorReference(descriptor, className);
+		while (true)
+		{
+			DescriptorReference existing = cache.putIfAbsent(className, reference);
+			if (existing == null)
+				return descriptor;
+			
+			SrgTypeDescriptor current = existing.get();
+			if (current != null)
+				return current;
+			
+			// The previous descriptor was collected, but its entry has not been purged yet
+			if (cache.replace(className, existing, reference))
+				return descriptor;
+		}
 	}
 	
-	public SrgTypeDescriptor(String descriptor, int offset)
+	/**
+	 * Drops the cache entries of collected descriptors.
+	 */
+	private static void purge()
+	{
+		Reference<? extends SrgTypeDescriptor> reference;
+		while ((reference = collected.poll()) != null)
+		{
+			DescriptorReference entry = (DescriptorReference) reference;
+			objectCache[entry.arrayDepth].remove(entry.className, entry);
+		}
+	}
+	
+	/**
+	 * Parses a single type from a descriptor string.
+	 * @param descriptor The descriptor string (e.g. a method descriptor)
+	 * @param offset The offset of the type to parse
+	 * @return The parsed type. Its qualified name's length is the number of characters consumed.
+	 */
+	public static SrgTypeDescriptor parse(String descriptor, int offset)
 	{
 		int arrDepth = 0;
 		int idx;
@@ -96,73 +189,94 @@ public class SrgTypeDescriptor
 			++offset;
 		}
 		
-		this.arrayDepth = arrDepth;
-		
 		switch (descriptor.charAt(offset))
 		{
 			case 'Z':
-				this.type = Type.BOOLEAN;
-				this.classType = null;
-				break;
+				return valueOf(Type.BOOLEAN, arrDepth);
 			case 'B':
-				this.type = Type.BYTE;
-				this.classType = null;
-				break;
+				return valueOf(Type.BYTE, arrDepth);
 			case 'C':
-				this.type = Type.CHAR;
-				this.classType = null;
-				break;
+				return valueOf(Type.CHAR, arrDepth);
 			case 'S':
-				this.type = Type.SHORT;
-				this.classType = null;
-				break;
+				return valueOf(Type.SHORT, arrDepth);
 			case 'I':
-				this.type = Type.INT;
-				this.classType = null;
-				break;
+				return valueOf(Type.INT, arrDepth);
 			case 'J':
-				this.type = Type.LONG;
-				this.classType = null;
-				break;
+				return valueOf(Type.LONG, arrDepth);
 			case 'F':
-				this.type = Type.FLOAT;
-				this.classType = null;
-				break;
+				return valueOf(Type.FLOAT, arrDepth);
 			case 'D':
-				this.type = Type.DOUBLE;
-				this.classType = null;
-				break;
+				return valueOf(Type.DOUBLE, arrDepth);
 			case 'V':
-				this.type = Type.VOID;
-				this.classType = null;
-				break;					
+				return valueOf(Type.VOID, arrDepth);
 			case 'L':
-				this.type = Type.OBJECT;
 				idx = descriptor.indexOf(';', offset);
 				if (idx == -1)
 					throw new IllegalArgumentException("Could not parse method descriptor: Could not parse Object type");
 				
-				this.classType = new SrgClass(descriptor.substring(offset + 1, idx));
-				break;
+				return valueOf(SrgClass.valueOf(descriptor.substring(offset + 1, idx)), arrDepth);
 			default:
 				throw new IllegalArgumentException("Could not parse method descriptor: Unknown type");
 		}
+	}
+
+	/**
+	 * Constructs a new SrgTypeDescriptor. Use for every type *except* Object.
+	 * @param type The descriptor's type.
+	 * @param arrayDepth The number of array dimensions (0 if none)
+	 * @deprecated Use {@link #valueOf(Type, int)}, which returns shared instances.
+	 */
+	@Deprecated
+	public SrgTypeDescriptor(Type type, int arrayDepth)
+	{
+		if (type == Type.OBJECT)
+		{
+			throw new IllegalArgumentException();
+		}
 		
+		this.type = type;
+		this.arrayDepth = arrayDepth;
+		this.classType = null;
 		this.qualifiedName = generateQualifiedName();
 	}
 	
+	/**
+	 * Constructs a new SrgTypeDescriptor. Use for OBJECT type only.
+	 * @param classType The class type for this type descriptor.
+	 * @param arrayDepth The number of array dimensions (0 if none)
+	 * @deprecated Use {@link #valueOf(SrgClass, int)}, which returns shared instances.
+	 */
+	@Deprecated
+	public SrgTypeDescriptor(SrgClass classType, int arrayDepth)
+	{
+		this.type = Type.OBJECT;
+		this.arrayDepth = arrayDepth;
+		this.classType = classType;
+		this.qualifiedName = generateQualifiedName();
+	}
+	
+	/**
+	 * Constructs a new SrgTypeDescriptor from a descriptor string.
+	 * @deprecated Use {@link #parse(String, int)}, which returns shared instances.
+	 */
+	@Deprecated
+	public SrgTypeDescriptor(String descriptor, int offset)
+	{
+		this(parse(descriptor, offset));
+	}
+	
 	/**
 	 * Copy constructor
-	 * @param other type descriptor to copy
+	 * @param other Instance to copy
 	 */
 	private SrgTypeDescriptor(SrgTypeDescriptor other)
-	{		
+	{
 		this.type = other.type;
 		this.arrayDepth = other.arrayDepth;
 		this.classType = other.classType;
 		this.qualifiedName = other.qualifiedName;
 	}
-		
+	
 	/**
 	 * Updates qualified name. Call this after changing the descriptor type.
 	 */
@@ -218,9 +332,13 @@ public class SrgTypeDescriptor
 		return builder.toString();
 	}
 	
+	/**
+	 * SrgTypeDescriptor is immutable, so this returns the same instance.
+	 */
+	@Override
 	public SrgTypeDescriptor clone()
 	{
-		return new SrgTypeDescriptor(this);
+		return this;
 	}
 	
 	@Override
@@ -228,4 +346,17 @@ public class SrgTypeDescriptor
 	{
 		return getQualifiedName();
 	}
+	
+	private static final class DescriptorReference extends WeakReference<SrgTypeDescriptor>
+	{
+		private final String className;
+		private final int arrayDepth;
+		
+		DescriptorReference(SrgTypeDescriptor descriptor, String className)
+		{
+			super(descriptor, collected);
+			this.className = className;
+			this.arrayDepth = descriptor.arrayDepth;
+		}
+	}
 }
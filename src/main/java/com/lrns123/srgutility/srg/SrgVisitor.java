@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+/**
+ * Receives the entries of an srg mapping one by one.
+ * 
+ * Visitors are driven by {@link SrgReader} (straight from srg files) or by {@link SrgMapping#accept(SrgVisitor)}.
+ */
+public interface SrgVisitor
+{
+	/**
+	 * Visits a package mapping (PK: entry).
+	 * @param input The input package (e.g. '.' for the default package)
+	 * @param output The output package
+	 */
+	public void visitPackage(String input, String output);
+	
+	/**
+	 * Visits a class mapping (CL: entry).
+	 */
+	public void visitClass(SrgClass input, SrgClass output);
+	
+	/**
+	 * Visits a field mapping (FD: entry).
+	 */
+	public void visitField(SrgField input, SrgField output);
+	
+	/**
+	 * Visits a method mapping (MD: entry).
+	 */
+	public void visitMethod(SrgMethod input, SrgMethod output);
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Visitor that writes every entry it receives to an srg file, encoded as UTF-8.
+ */
+public class SrgWriter implements SrgVisitor, Closeable
+{
+	private final PrintWriter writer;
+	
+	/**
+	 * Opens the output file and writes the srg header.
+	 */
+	public SrgWriter(File outFile) throws IOException
+	{
+		if (outFile.getParentFile() != null && !outFile.getParentFile().exists())
+		{
+			outFile.getParentFile().mkdirs();
+		}
+		
+		writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8)));
+		
+		writer.println("# Mapping generated by Srg Utility (c) 2013 Lourens \"Lrns123\" Elzinga");
+		writer.println("# Generated on " + new Date());
+	}
+
+	@Override
+	public void visitPackage(String input, String output)
+	{
+		writeEntry("PK: ", input, output);
+	}
+
+	@Override
+	public void visitClass(SrgClass input, SrgClass output)
+	{
+		writeEntry("CL: ", input, output);
+	}
+
+	@Override
+	public void visitField(SrgField input, SrgField output)
+	{
+		writeEntry("FD: ", input, output);
+	}
+
+	@Override
+	public void visitMethod(SrgMethod input, SrgMethod output)
+	{
+		// Printed in parts, so the methods do not build and keep their combined name
+		writer.print("MD: ");
+		writer.print(input.getQualifiedName());
+		writer.print(' ');
+		writer.print(input.getMethodDescriptor());
+		writer.print(' ');
+		writer.print(output.getQualifiedName());
+		writer.print(' ');
+		writer.print(output.getMethodDescriptor());
+		writer.println();
+	}
+	
+	private void writeEntry(String prefix, Object input, Object output)
+	{
+		writer.print(prefix);
+		writer.print(input);
+		writer.print(' ');
+		writer.print(output);
+		writer.println();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		writer.close();
+	}
+}
@@ -0,0 +1,364 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Open-addressing mapping table for symbols. The default storage of SrgMapping.
+ * 
+ * Entries are stored as rows of key and value, side by side in one array and in insertion order, so iteration order
+ * only depends on the order in which entries were added. Rows are found through a linear-probing index that holds the row and the
+ * cached hash code of each slot side by side, so a probe only touches the key of a row whose hash matches.
+ * Lookups and updates allocate nothing. The entry set creates an immutable entry for every row it returns, so
+ * internal loops copy the rows with {@link #rowsOf(Map)} instead.
+ * 
+ * Removing an entry moves the last row into its place. Null keys and values are not supported. Not thread-safe.
+ */
+final class SymbolHashTable<K> extends AbstractMap<K, K>
+{
+	/**
+	 * Key of row i at 2i, value at 2i + 1.
+	 */
+	private Object[] rows;
+	private int size;
+	
+	/**
+	 * Open-addressing index. Slot i holds (row + 1), or 0 if empty, at 2i and the hash code of the row at 2i + 1.
+	 */
+	private int[] index;
+	private int mask;
+	
+	SymbolHashTable()
+	{
+		this(16);
+	}
+	
+	SymbolHashTable(int expectedSize)
+	{
+		int capacity = Math.max(16, expectedSize);
+		
+		this.rows = new Object[capacity * 2];
+		this.index = new int[SrgStringTable.tableSizeFor(capacity * 2) * 2];
+		this.mask = index.length / 2 - 1;
+	}
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return findSlot(key) != -1;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public K get(Object key)
+	{
+		int slot = findSlot(key);
+		return slot != -1 ? (K) rows[((index[slot << 1] - 1) << 1) + 1] : null;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public K put(K key, K value)
+	{
+		if (key == null || value == null)
+			throw new IllegalArgumentException("Cannot store " + key + " -> " + value);
+		
+		int hash = key.hashCode();
+		int slot;
+		
+		for (slot = SrgStringTable.mix(hash) & mask;; slot = (slot + 1) & mask)
+		{
+			int entry = index[slot << 1];
+			if (entry == 0)
+				break;
+			
+			int row = entry - 1;
+			if (index[(slot << 1) + 1] == hash && (rows[row << 1] == key || rows[row << 1].equals(key)))
+			{
+				K previous = (K) rows[(row << 1) + 1];
+				rows[(row << 1) + 1] = value;
+				return previous;
+			}
+		}
+		
+		if (size * 2 == rows.length)
+			rows = Arrays.copyOf(rows, rows.length * 2);
+		
+		int row = size++;
+		rows[row << 1] = key;
+		rows[(row << 1) + 1] = value;
+		index[slot << 1] = row + 1;
+		index[(slot << 1) + 1] = hash;
+		
+		// Keep the load factor at or below 0.5
+		if (size * 2 > mask + 1)
+			rehash((mask + 1) * 2);
+		
+		return null;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public K remove(Object key)
+	{
+		int slot = findSlot(key);
+		if (slot == -1)
+			return null;
+		
+		int row = index[slot << 1] - 1;
+		K previous = (K) rows[(row << 1) + 1];
+		deleteSlot(slot);
+		
+		int last = --size;
+		if (row != last)
+		{
+			// Move the last row into the freed row
+			index[slotOf(last) << 1] = row + 1;
+			rows[row << 1] = rows[last << 1];
+			rows[(row << 1) + 1] = rows[(last << 1) + 1];
+		}
+		rows[last << 1] = null;
+		rows[(last << 1) + 1] = null;
+		
+		return previous;
+	}
+	
+	@Override
+	public void clear()
+	{
+		Arrays.fill(rows, 0, size * 2, null);
+		Arrays.fill(index, 0);
+		size = 0;
+	}
+	
+	/**
+	 * Returns the keys and values of a table as rows, key i at 2i and value i at 2i + 1, in iteration order.
+	 * The rows of a SymbolHashTable are copied directly, other tables are read through their entry set.
+	 */
+	static Object[] rowsOf(Map<?, ?> table)
+	{
+		if (table instanceof SymbolHashTable)
+		{
+			SymbolHashTable<?> symbols = (SymbolHashTable<?>) table;
+			return Arrays.copyOf(symbols.rows, symbols.size * 2);
+		}
+		
+		Object[] rows = new Object[table.size() * 2];
+		int idx = 0;
+		for (Map.Entry<?, ?> entry : table.entrySet())
+		{
+			// Concurrent tables may grow while they are copied
+			if (idx == rows.length)
+				rows = Arrays.copyOf(rows, Math.max(16, idx * 2));
+			
+			rows[idx++] = entry.getKey();
+			rows[idx++] = entry.getValue();
+		}
+		return idx == rows.length ? rows : Arrays.copyOf(rows, idx);
+	}
+	
+	@Override
+	public Set<K> keySet()
+	{
+		return new RowSet<K>()
+		{
+			@Override
+			@SuppressWarnings("unchecked")
+			K element(int row)
+			{
+				return (K) rows[row << 1];
+			}
+			
+			@Override
+			public boolean contains(Object o)
+			{
+				return containsKey(o);
+			}
+		};
+	}
+	
+	@Override
+	public Set<Map.Entry<K, K>> entrySet()
+	{
+		return new RowSet<Map.Entry<K, K>>()
+		{
+			@Override
+			@SuppressWarnings("unchecked")
+			Map.Entry<K, K> element(int row)
+			{
+				return new SimpleImmutableEntry<K, K>((K) rows[row << 1], (K) rows[(row << 1) + 1]);
+			}
+		};
+	}
+	
+	/**
+	 * Returns the index slot holding the row of a key, or -1 if the key is not in the table.
+	 */
+	private int findSlot(Object key)
+	{
+		if (key == null)
+			return -1;
+		
+		int hash = key.hashCode();
+		
+		for (int slot = SrgStringTable.mix(hash) & mask;; slot = (slot + 1) & mask)
+		{
+			int entry = index[slot << 1];
+			if (entry == 0)
+				return -1;
+			
+			if (index[(slot << 1) + 1] == hash)
+			{
+				Object candidate = rows[(entry - 1) << 1];
+				if (candidate == key || candidate.equals(key))
+					return slot;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the index slot holding a row.
+	 */
+	private int slotOf(int row)
+	{
+		int slot = SrgStringTable.mix(rows[row << 1].hashCode()) & mask;
+		
+		while (index[slot << 1] != row + 1)
+			slot = (slot + 1) & mask;
+		
+		return slot;
+	}
+	
+	/**
+	 * Clears an index slot, shifting back later entries of the probe sequence so lookups never hit a gap.
+	 */
+	private void deleteSlot(int slot)
+	{
+		int hole = slot;
+		
+		for (int next = (hole + 1) & mask;; next = (next + 1) & mask)
+		{
+			int entry = index[next << 1];
+			if (entry == 0)
+				break;
+			
+			// Entries whose home slot lies cyclically after the hole must stay put
+			int hash = index[(next << 1) + 1];
+			int home = SrgStringTable.mix(hash) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask))
+			{
+				index[hole << 1] = entry;
+				index[(hole << 1) + 1] = hash;
+				hole = next;
+			}
+		}
+		
+		index[hole << 1] = 0;
+		index[(hole << 1) + 1] = 0;
+	}
+	
+	private void rehash(int capacity)
+	{
+		int[] newIndex = new int[capacity * 2];
+		int newMask = capacity - 1;
+		
+		for (int slot = 0; slot <= mask; ++slot)
+		{
+			int entry = index[slot << 1];
+			if (entry == 0)
+				continue;
+			
+			int hash = index[(slot << 1) + 1];
+			int newSlot = SrgStringTable.mix(hash) & newMask;
+			while (newIndex[newSlot << 1] != 0)
+				newSlot = (newSlot + 1) & newMask;
+			
+			newIndex[newSlot << 1] = entry;
+			newIndex[(newSlot << 1) + 1] = hash;
+		}
+		
+		index = newIndex;
+		mask = newMask;
+	}
+	
+	/**
+	 * Read-only view over the rows of the table.
+	 */
+	private abstract class RowSet<E> extends AbstractSet<E>
+	{
+		abstract E element(int row);
+		
+		@Override
+		public int size()
+		{
+			return size;
+		}
+		
+		@Override
+		public Iterator<E> iterator()
+		{
+			return new Iterator<E>()
+			{
+				private int row = 0;
+				
+				@Override
+				public boolean hasNext()
+				{
+					return row < size;
+				}
+				
+				@Override
+				public E next()
+				{
+					if (row >= size)
+						throw new NoSuchElementException();
+					
+					return element(row++);
+				}
+				
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary indexes over the inputs of a mapping: members by owner class and by name, and classes by package.
+ * 
+ * Built in a single pass over the mapping tables. The index does not follow changes to the mapping, it has to be
+ * rebuilt after the mapping is modified.
+ */
+final class SymbolIndex
+{
+	private final Map<SrgClass, List<SrgField>> fieldsByOwner = new HashMap<SrgClass, List<SrgField>>();
+	private final Map<SrgClass, List<SrgMethod>> methodsByOwner = new HashMap<SrgClass, List<SrgMethod>>();
+	private final Map<String, List<SrgField>> fieldsByName = new HashMap<String, List<SrgField>>();
+	private final Map<String, List<SrgMethod>> methodsByName = new HashMap<String, List<SrgMethod>>();
+	private final Map<String, List<SrgClass>> classesByPackage = new HashMap<String, List<SrgClass>>();
+	
+	SymbolIndex(Map<SrgClass, SrgClass> classes, Map<SrgField, SrgField> fields, Map<SrgMethod, SrgMethod> methods)
+	{
+		for (SrgClass clazz : classes.keySet())
+		{
+			add(classesByPackage, clazz.getPackageName(), clazz);
+		}
+		
+		for (SrgField field : fields.keySet())
+		{
+			add(fieldsByOwner, SrgClass.valueOf(field.getPackageName(), field.getClassName()), field);
+			add(fieldsByName, field.getFieldName(), field);
+		}
+		
+		for (SrgMethod method : methods.keySet())
+		{
+			add(methodsByOwner, SrgClass.valueOf(method.getPackageName(), method.getClassName()), method);
+			add(methodsByName, method.getMethodName(), method);
+		}
+	}
+	
+	List<SrgField> getFields(SrgClass owner)
+	{
+		return get(fieldsByOwner, owner);
+	}
+	
+	List<SrgMethod> getMethods(SrgClass owner)
+	{
+		return get(methodsByOwner, owner);
+	}
+	
+	List<SrgField> getFields(String name)
+	{
+		return get(fieldsByName, name);
+	}
+	
+	List<SrgMethod> getMethods(String name)
+	{
+		return get(methodsByName, name);
+	}
+	
+	List<SrgClass> getClasses(String packageName)
+	{
+		return get(classesByPackage, packageName);
+	}
+	
+	private static <K, V> void add(Map<K, List<V>> index, K key, V value)
+	{
+		List<V> values = index.get(key);
+		if (values == null)
+		{
+			values = new ArrayList<V>(4);
+			index.put(key, values);
+		}
+		values.add(value);
+	}
+	
+	private static <K, V> List<V> get(Map<K, List<V>> index, K key)
+	{
+		List<V> values = index.get(key);
+		return values != null ? Collections.unmodifiableList(values) : Collections.<V>emptyList();
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.srg;
+
+import java.util.Map;
+
+import com.lrns123.srgutility.transformer.MappingTransformer;
+
+/**
+ * Selects one of the three mapping tables (classes, fields or methods), so an operation can be written once for
+ * all of them.
+ */
+abstract class SymbolKind<K>
+{
+	static final SymbolKind<SrgClass> CLASS = new SymbolKind<SrgClass>()
+	{
+		@Override
+		Map<SrgClass, SrgClass> table(SrgMapping mapping)
+		{
+			return mapping.classTable();
+		}
+		
+		@Override
+		SrgClass get(SrgMapping mapping, SrgClass input)
+		{
+			return mapping.getClassMapping(input);
+		}
+		
+		@Override
+		void add(SrgMapping mapping, SrgClass input, SrgClass output)
+		{
+			mapping.addClassMapping(input, output);
+		}
+		
+		@Override
+		SrgClass transform(MappingTransformer transformer, SrgClass symbol)
+		{
+			return transformer.transform(symbol);
+		}
+	};
+	
+	static final SymbolKind<SrgField> FIELD = new SymbolKind<SrgField>()
+	{
+		@Override
+		Map<SrgField, SrgField> table(SrgMapping mapping)
+		{
+			return mapping.fieldTable();
+		}
+		
+		@Override
+		SrgField get(SrgMapping mapping, SrgField input)
+		{
+			return mapping.getFieldMapping(input);
+		}
+		
+		@Override
+		void add(SrgMapping mapping, SrgField input, SrgField output)
+		{
+			mapping.addFieldMapping(input, output);
+		}
+		
+		@Override
+		SrgField transform(MappingTransformer transformer, SrgField symbol)
+		{
+			return transformer.transform(symbol);
+		}
+	};
+	
+	static final SymbolKind<SrgMethod> METHOD = new SymbolKind<SrgMethod>()
+	{
+		@Override
+		Map<SrgMethod, SrgMethod> table(SrgMapping mapping)
+		{
+			return mapping.methodTable();
+		}
+		
+		@Override
+		SrgMethod get(SrgMapping mapping, SrgMethod input)
+		{
+			return mapping.getMethodMapping(input);
+		}
+		
+		@Override
+		void add(SrgMapping mapping, SrgMethod input, SrgMethod output)
+		{
+			mapping.addMethodMapping(input, output);
+		}
+		
+		@Override
+		SrgMethod transform(MappingTransformer transformer, SrgMethod symbol)
+		{
+			return transformer.transform(symbol);
+		}
+	};
+	
+	private SymbolKind()
+	{
+	}
+	
+	/**
+	 * Returns the mapping's table of this kind.
+	 */
+	abstract Map<K, K> table(SrgMapping mapping);
+	
+	/**
+	 * Returns the output of an input in the mapping, or null if it is not mapped.
+	 */
+	abstract K get(SrgMapping mapping, K input);
+	
+	/**
+	 * Adds an entry to the mapping.
+	 */
+	abstract void add(SrgMapping mapping, K input, K output);
+	
+	abstract K transform(MappingTransformer transformer, K symbol);
+}
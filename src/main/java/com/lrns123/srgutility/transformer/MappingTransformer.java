@@ -32,6 +32,8 @@ import com.lrns123.srgutility.srg.SrgMethod;
 
 /**
  * Interface for all mapping transformers.
+ * 
+ * Large mappings are transformed in parallel, so implementations must be safe to call from multiple threads.
  */
 public interface MappingTransformer
 {
@@ -114,7 +114,7 @@ public class MinecraftCodersPackTransformer implements MappingTransformer
 					if (mutator == null)
 						mutator = input.getMutator();
 					
-					mutator.setArgument(i, new SrgClass(mapping.getPackageMapping().get(typeClass.getClassName()), typeClass.getClassName()), descriptor.getArrayDepth());
+					mutator.setArgument(i, SrgClass.valueOf(mapping.getPackageMapping().get(typeClass.getClassName()), typeClass.getClassName()), descriptor.getArrayDepth());
 				}
 			}
 		}
@@ -127,7 +127,7 @@ public class MinecraftCodersPackTransformer implements MappingTransformer
 				if (mutator == null)
 					mutator = input.getMutator();
 				
-				mutator.setReturnType(new SrgClass(mapping.getPackageMapping().get(typeClass.getClassName()), typeClass.getClassName()), input.getReturnType().getArrayDepth());
+				mutator.setReturnType(SrgClass.valueOf(mapping.getPackageMapping().get(typeClass.getClassName()), typeClass.getClassName()), input.getReturnType().getArrayDepth());
 			}
 		}
 		
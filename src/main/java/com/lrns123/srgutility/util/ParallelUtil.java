@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2013, Lourens "Lrns123" Elzinga
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lrns123.srgutility.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelUtil
+{
+	/**
+	 * Lazily created pool shared by all parallel operations. Its workers are daemon threads.
+	 */
+	private static final class PoolHolder
+	{
+		static final ForkJoinPool pool = new ForkJoinPool();
+	}
+	
+	/**
+	 * Returns the fork-join pool used for parallel mapping operations.
+	 */
+	public static ForkJoinPool getPool()
+	{
+		return PoolHolder.pool;
+	}
+	
+	/**
+	 * Returns the number of threads used for parallel mapping operations.
+	 */
+	public static int getParallelism()
+	{
+		return getPool().getParallelism();
+	}
+	
+	/**
+	 * Sorts an array on the shared pool. Stable, like Arrays.sort.
+	 */
+	public static <T> void sort(T[] array, Comparator<? super T> comparator)
+	{
+		if (array.length <= SortTask.THRESHOLD)
+		{
+			Arrays.sort(array, comparator);
+			return;
+		}
+		
+		getPool().invoke(new SortTask<T>(array, Arrays.copyOf(array, array.length), 0, array.length, comparator));
+	}
+	
+	/**
+	 * Orders two indexes by the elements they refer to.
+	 */
+	public interface IndexComparator
+	{
+		public int compare(int i, int j);
+	}
+	
+	/**
+	 * Sorts an array of indexes on the shared pool. Stable.
+	 */
+	public static void sort(int[] indexes, IndexComparator comparator)
+	{
+		int[] buffer = new int[indexes.length];
+		
+		if (indexes.length <= SortTask.THRESHOLD)
+		{
+			IndexSortTask.sort(indexes, buffer, 0, indexes.length, comparator);
+			return;
+		}
+		
+		getPool().invoke(new IndexSortTask(indexes, buffer, 0, indexes.length, comparator));
+	}
+	
+	/**
+	 * Parallel merge sort. Sorts [from, to) of array, using the same range of buffer as scratch space.
+	 */
+	private static final class SortTask<T> extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		static final int THRESHOLD = 1 << 13;
+		
+		private final T[] array;
+		private final T[] buffer;
+		private final int from;
+		private final int to;
+		private final Comparator<? super T> comparator;
+		
+		SortTask(T[] array, T[] buffer, int from, int to, Comparator<? super T> comparator)
+		{
+			this.array = array;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.comparator = comparator;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if (to - from <= THRESHOLD)
+			{
+				Arrays.sort(array, from, to, comparator);
+				return;
+			}
+			
+			int mid = (from + to) >>> 1;
+			invokeAll(new SortTask<T>(array, buffer, from, mid, comparator), new SortTask<T>(array, buffer, mid, to, comparator));
+			
+			// Merge both sorted halves through the buffer
+			System.arraycopy(array, from, buffer, from, to - from);
+			
+			int left = from, right = mid, out = from;
+			while (left < mid && right < to)
+			{
+				// Prefer the left element on ties to keep the sort stable
+				if (comparator.compare(buffer[right], buffer[left]) < 0)
+					array[out++] = buffer[right++];
+				else
+					array[out++] = buffer[left++];
+			}
+			
+			while (left < mid)
+				array[out++] = buffer[left++];
+			while (right < to)
+				array[out++] = buffer[right++];
+		}
+	}
+	
+	/**
+	 * Parallel merge sort of indexes, see {@link SortTask}.
+	 */
+	private static final class IndexSortTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * Ranges of at most this size are sorted by insertion.
+		 */
+		private static final int INSERTION_THRESHOLD = 16;
+		
+		private final int[] array;
+		private final int[] buffer;
+		private final int from;
+		private final int to;
+		private final IndexComparator comparator;
+		
+		IndexSortTask(int[] array, int[] buffer, int from, int to, IndexComparator comparator)
+		{
+			this.array = array;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.comparator = comparator;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if (to - from <= SortTask.THRESHOLD)
+			{
+				sort(array, buffer, from, to, comparator);
+				return;
+			}
+			
+			int mid = (from + to) >>> 1;
+			invokeAll(new IndexSortTask(array, buffer, from, mid, comparator), new IndexSortTask(array, buffer, mid, to, comparator));
+			merge(array, buffer, from, mid, to, comparator);
+		}
+		
+		/**
+		 * Sorts [from, to) on the calling thread.
+		 */
+		static void sort(int[] array, int[] buffer, int from, int to, IndexComparator comparator)
+		{
+			if (to - from <= INSERTION_THRESHOLD)
+			{
+				for (int i = from + 1; i < to; ++i)
+				{
+					int value = array[i];
+					int j = i;
+					while (j > from && comparator.compare(value, array[j - 1]) < 0)
+					{
+						array[j] = array[j - 1];
+						--j;
+					}
+					array[j] = value;
+				}
+				return;
+			}
+			
+			int mid = (from + to) >>> 1;
+			sort(array, buffer, from, mid, comparator);
+			sort(array, buffer, mid, to, comparator);
+			merge(array, buffer, from, mid, to, comparator);
+		}
+		
+		/**
+		 * Merges the sorted ranges [from, mid) and [mid, to) through the buffer.
+		 */
+		private static void merge(int[] array, int[] buffer, int from, int mid, int to, IndexComparator comparator)
+		{
+			// Already in order, as happens for presorted input
+			if (comparator.compare(array[mid], array[mid - 1]) >= 0)
+				return;
+			
+			System.arraycopy(array, from, buffer, from, to - from);
+			
+			int left = from, right = mid, out = from;
+			while (left < mid && right < to)
+			{
+				// Prefer the left element on ties to keep the sort stable
+				if (comparator.compare(buffer[right], buffer[left]) < 0)
+					array[out++] = buffer[right++];
+				else
+					array[out++] = buffer[left++];
+			}
+			
+			while (left < mid)
+				array[out++] = buffer[left++];
+			while (right < to)
+				array[out++] = buffer[right++];
+		}
+	}
+}